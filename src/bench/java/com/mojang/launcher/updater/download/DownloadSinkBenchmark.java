@@ -0,0 +1,171 @@
+package com.mojang.launcher.updater.download;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+public class DownloadSinkBenchmark
+{
+  private static final int[] SIZES = { 1024, 102400, 10485760 };
+  private static final long BYTES_PER_ROUND = 20000000L;
+  private static final int BUFFER_SIZE = 65536;
+  
+  public static void main(String[] args)
+    throws IOException, NoSuchAlgorithmException
+  {
+    OptionParser optionParser = new OptionParser();
+    optionParser.accepts("help", "Show help").forHelp();
+    OptionSpec<File> directoryOption = optionParser.accepts("directory", "Where to write the benchmark files").withRequiredArg().ofType(File.class);
+    OptionSpec<Integer> roundsOption = optionParser.accepts("rounds", "Number of timed rounds after warm-up").withRequiredArg().ofType(Integer.class).defaultsTo(Integer.valueOf(3), new Integer[0]);
+    OptionSet optionSet;
+    try
+    {
+      optionSet = optionParser.parse(args);
+    }
+    catch (OptionException e)
+    {
+      optionParser.printHelpOn(System.out);
+      return;
+    }
+    if (optionSet.has("help"))
+    {
+      optionParser.printHelpOn(System.out);
+      return;
+    }
+    File directory = optionSet.has(directoryOption) ? (File)optionSet.valueOf(directoryOption) : new File(System.getProperty("java.io.tmpdir"), "launcher-sink-benchmark-" + System.nanoTime());
+    try
+    {
+      run(directory, ((Integer)optionSet.valueOf(roundsOption)).intValue());
+    }
+    finally
+    {
+      FileUtils.deleteQuietly(directory);
+    }
+  }
+  
+  private static void run(File directory, int rounds)
+    throws IOException, NoSuchAlgorithmException
+  {
+    FileUtils.forceMkdir(directory);
+    File target = new File(directory, "object");
+    File compressedTarget = new File(directory, "object.gz");
+    Random random = new Random(1L);
+    for (int size : SIZES)
+    {
+      byte[] data = new byte[size];
+      for (int i = 0; i < size; i++) {
+        data[i] = ((byte)random.nextInt(16));
+      }
+      ByteArrayOutputStream compressedBytes = new ByteArrayOutputStream();
+      GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressedBytes);
+      gzipOutputStream.write(data);
+      gzipOutputStream.close();
+      byte[] compressed = compressedBytes.toByteArray();
+      int iterations = (int)Math.max(20L, BYTES_PER_ROUND / size);
+      for (int round = 0; round <= rounds; round++)
+      {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+          copyWithStream(new ByteArrayInputStream(data), target);
+        }
+        long streamPlain = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+          copyWithSink(data, target);
+        }
+        long sinkPlain = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+          inflateWithStream(compressed, compressedTarget, target);
+        }
+        long streamCompressed = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+          inflateWithSink(compressed, compressedTarget, target);
+        }
+        long sinkCompressed = System.nanoTime() - start;
+        if (round > 0) {
+          System.out.println(String.format("%d bytes, round %d: plain stream %.1f us, sink %.1f us; compressed stream %.1f us, sink %.1f us", new Object[] { Integer.valueOf(size), Integer.valueOf(round), Double.valueOf(streamPlain / 1000.0D / iterations), Double.valueOf(sinkPlain / 1000.0D / iterations), Double.valueOf(streamCompressed / 1000.0D / iterations), Double.valueOf(sinkCompressed / 1000.0D / iterations) }));
+        }
+      }
+    }
+  }
+  
+  private static void copyWithStream(InputStream inputStream, File target)
+    throws IOException, NoSuchAlgorithmException
+  {
+    MessageDigest digest = MessageDigest.getInstance("SHA-1");
+    OutputStream outputStream = new FileOutputStream(target);
+    try
+    {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = inputStream.read(buffer)) > 0)
+      {
+        digest.update(buffer, 0, read);
+        outputStream.write(buffer, 0, read);
+      }
+    }
+    finally
+    {
+      IOUtils.closeQuietly(outputStream);
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
+  
+  private static void copyWithSink(byte[] data, File target)
+    throws IOException, NoSuchAlgorithmException
+  {
+    FileChannel channel = DownloadSink.open(target, false);
+    try
+    {
+      DownloadSink.transfer(new ByteArrayInputStream(data), channel, MessageDigest.getInstance("SHA-1"), -1L);
+    }
+    finally
+    {
+      channel.close();
+    }
+  }
+  
+  private static void inflateWithStream(byte[] compressed, File compressedTarget, File target)
+    throws IOException, NoSuchAlgorithmException
+  {
+    copyWithStream(new ByteArrayInputStream(compressed), compressedTarget);
+    copyWithStream(new GZIPInputStream(new FileInputStream(compressedTarget)), target);
+  }
+  
+  private static void inflateWithSink(byte[] compressed, File compressedTarget, File target)
+    throws IOException, NoSuchAlgorithmException
+  {
+    FileChannel compressedChannel = DownloadSink.open(compressedTarget, false);
+    FileChannel channel = DownloadSink.open(target, false);
+    try
+    {
+      DownloadSink.TeeInputStream teeInputStream = new DownloadSink.TeeInputStream(new ByteArrayInputStream(compressed), compressedChannel, MessageDigest.getInstance("SHA-1"));
+      DownloadSink.transfer(new GZIPInputStream(teeInputStream, BUFFER_SIZE), channel, MessageDigest.getInstance("SHA-1"), -1L);
+      teeInputStream.drain();
+    }
+    finally
+    {
+      compressedChannel.close();
+      channel.close();
+    }
+  }
+}
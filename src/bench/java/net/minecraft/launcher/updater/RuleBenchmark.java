@@ -0,0 +1,106 @@
+package net.minecraft.launcher.updater;
+
+import com.mojang.launcher.OperatingSystem;
+import java.io.File;
+import java.io.IOException;
+import java.net.Proxy;
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+
+public class RuleBenchmark
+{
+  private static final String VERSION_ID = "rule-benchmark";
+  
+  public static void main(String[] args)
+    throws IOException
+  {
+    OptionParser optionParser = new OptionParser();
+    optionParser.accepts("help", "Show help").forHelp();
+    OptionSpec<Integer> librariesOption = optionParser.accepts("libraries", "Number of libraries in the generated version").withRequiredArg().ofType(Integer.class).defaultsTo(Integer.valueOf(200), new Integer[0]);
+    OptionSpec<Integer> iterationsOption = optionParser.accepts("iterations", "Evaluations per round").withRequiredArg().ofType(Integer.class).defaultsTo(Integer.valueOf(1000), new Integer[0]);
+    OptionSpec<Integer> roundsOption = optionParser.accepts("rounds", "Number of timed rounds").withRequiredArg().ofType(Integer.class).defaultsTo(Integer.valueOf(3), new Integer[0]);
+    OptionSet optionSet;
+    try
+    {
+      optionSet = optionParser.parse(args);
+    }
+    catch (OptionException e)
+    {
+      optionParser.printHelpOn(System.out);
+      return;
+    }
+    if (optionSet.has("help"))
+    {
+      optionParser.printHelpOn(System.out);
+      return;
+    }
+    File directory = new File(System.getProperty("java.io.tmpdir"), "launcher-rule-benchmark-" + System.nanoTime());
+    try
+    {
+      writeVersion(directory, ((Integer)optionSet.valueOf(librariesOption)).intValue());
+      run(directory, ((Integer)optionSet.valueOf(iterationsOption)).intValue(), ((Integer)optionSet.valueOf(roundsOption)).intValue());
+    }
+    finally
+    {
+      FileUtils.deleteQuietly(directory);
+    }
+  }
+  
+  private static void writeVersion(File directory, int libraries)
+    throws IOException
+  {
+    StringBuilder json = new StringBuilder();
+    json.append("{\"id\": \"").append(VERSION_ID).append("\", \"time\": \"2014-05-14T17:29:23+00:00\", \"releaseTime\": \"2014-05-14T17:29:23+00:00\", ");
+    json.append("\"type\": \"release\", \"minecraftArguments\": \"\", \"mainClass\": \"Main\", \"minimumLauncherVersion\": 14, \"libraries\": [");
+    for (int i = 0; i < libraries; i++)
+    {
+      if (i > 0) {
+        json.append(", ");
+      }
+      json.append("{\"name\": \"org.l").append(i).append(":a").append(i).append(":1.0\", \"rules\": [{\"action\": \"allow\"}, ");
+      json.append("{\"action\": \"disallow\", \"os\": {\"name\": \"osx\", \"version\": \"^10\\\\.5\\\\.\\\\d$\"}}, ");
+      json.append("{\"action\": \"disallow\", \"os\": {\"name\": \"linux\", \"arch\": \"^x86$\"}}]");
+      if (i % 10 == 0) {
+        json.append(", \"natives\": {\"linux\": \"natives-linux\", \"windows\": \"natives-windows\", \"osx\": \"natives-osx\"}");
+      }
+      json.append("}");
+    }
+    json.append("]}");
+    FileUtils.writeStringToFile(new File(directory, "versions/" + VERSION_ID + "/" + VERSION_ID + ".json"), json.toString(), Charsets.UTF_8);
+  }
+  
+  private static void run(File directory, int iterations, int rounds)
+    throws IOException
+  {
+    LocalVersionList versionList = new LocalVersionList(directory);
+    versionList.refreshVersions();
+    CompleteMinecraftVersion version = versionList.getCompleteVersion(VERSION_ID);
+    if (version == null) {
+      throw new IOException("Couldn't load generated version from " + directory);
+    }
+    OperatingSystem os = OperatingSystem.getCurrentPlatform();
+    File base = new File(directory, "libraries");
+    for (int round = 0; round < rounds; round++)
+    {
+      long start = System.nanoTime();
+      int relevant = 0;
+      for (int i = 0; i < iterations; i++) {
+        relevant += version.getRelevantLibraries().size();
+      }
+      long rules = System.nanoTime() - start;
+      int total = relevant;
+      for (int i = 0; i < iterations; i++)
+      {
+        total += version.getClassPath(os, base).size();
+        total += version.getRequiredFiles(os).size();
+        total += version.getRequiredDownloadables(os, Proxy.NO_PROXY, base, false).size();
+      }
+      long mixed = System.nanoTime() - start;
+      System.out.println("Round " + (round + 1) + ": " + iterations + " rule evaluations of " + version.getLibraries().size() + " libraries in " + rules / 1000000L + " ms; " + iterations * 4 + " mixed evaluations in " + mixed / 1000000L + " ms (" + total + " results)");
+    }
+  }
+}
@@ -16,6 +16,9 @@ import org.apache.logging.log4j.Logger;
 public class Http
 {
   private static final Logger LOGGER;
+  private static final int DEFAULT_POOL_SIZE = 16;
+  private static final int MAX_DRAIN_SIZE = 65536;
+  private static boolean poolConfigured;
   
   public static String buildQuery(Map<String, Object> query)
   {
@@ -52,12 +55,21 @@ public class Http
   public static String performGet(URL url, Proxy proxy)
     throws IOException
   {
-    HttpURLConnection connection = (HttpURLConnection)url.openConnection(proxy);
+    HttpURLConnection connection = openConnection(url, proxy);
     connection.setConnectTimeout(15000);
     connection.setReadTimeout(60000);
     connection.setRequestMethod("GET");
     
-    InputStream inputStream = connection.getInputStream();
+    InputStream inputStream;
+    try
+    {
+      inputStream = connection.getInputStream();
+    }
+    catch (IOException e)
+    {
+      release(connection);
+      throw e;
+    }
     try
     {
       return IOUtils.toString(inputStream);
@@ -67,6 +79,70 @@ public class Http
       IOUtils.closeQuietly(inputStream);
     }
   }
+  
+  public static HttpURLConnection openConnection(URL url, Proxy proxy)
+    throws IOException
+  {
+    configureConnectionPool();
+    return (HttpURLConnection)url.openConnection(proxy);
+  }
+  
+  public static void release(HttpURLConnection connection)
+  {
+    InputStream inputStream;
+    try
+    {
+      inputStream = connection.getInputStream();
+    }
+    catch (IOException e)
+    {
+      inputStream = connection.getErrorStream();
+    }
+    if (inputStream == null) {
+      return;
+    }
+    try
+    {
+      byte[] buffer = new byte[4096];
+      long drained = 0L;
+      int read;
+      while ((read = inputStream.read(buffer)) >= 0)
+      {
+        drained += read;
+        if (drained > MAX_DRAIN_SIZE)
+        {
+          connection.disconnect();
+          break;
+        }
+      }
+    }
+    catch (IOException ignored) {}
+    finally
+    {
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
+  
+  public static synchronized void configureConnectionPool()
+  {
+    if (poolConfigured) {
+      return;
+    }
+    poolConfigured = true;
+    
+    int poolSize = Integer.getInteger("launcher.http.poolSize", DEFAULT_POOL_SIZE).intValue();
+    setDefaultProperty("http.keepAlive", "true");
+    setDefaultProperty("http.maxConnections", String.valueOf(poolSize));
+    LOGGER.debug("HTTP keep-alive pool: up to " + System.getProperty("http.maxConnections") + " idle connections per host; idle timeout is whatever the server's Keep-Alive header allows");
+  }
+  
+  private static void setDefaultProperty(String key, String value)
+  {
+    if (System.getProperty(key) == null) {
+      System.setProperty(key, value);
+    }
+  }
+  
   static {
       LOGGER = LogManager.getLogger();
   }
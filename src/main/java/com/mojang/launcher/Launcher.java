@@ -3,6 +3,8 @@ package com.mojang.launcher;
 import com.mojang.authlib.Agent;
 import com.mojang.launcher.updater.ExceptionalThreadPoolExecutor;
 import com.mojang.launcher.updater.VersionManager;
+import com.mojang.launcher.updater.download.RevalidationCache;
+import com.mojang.launcher.updater.download.VerificationIndex;
 import com.mojang.launcher.versions.ReleaseTypeFactory;
 import java.io.File;
 import java.net.PasswordAuthentication;
@@ -43,6 +45,8 @@ public class Launcher
     this.launcherFormatVersion = launcherFormatVersion;
     
     this.downloaderExecutorService.allowCoreThreadTimeOut(true);
+    VerificationIndex.getInstance().load(new File(workingDirectory, "launcher_verification_index.json"));
+    RevalidationCache.getInstance().load(new File(workingDirectory, "launcher_revalidation_cache.json"));
   }
   
   public ReleaseTypeFactory getReleaseTypeFactory()
@@ -12,6 +12,7 @@ public enum OperatingSystem
   LINUX("linux", new String[] { "linux", "unix" }),  WINDOWS("windows", new String[] { "win" }),  OSX("osx", new String[] { "mac" }),  UNKNOWN("unknown", new String[0]);
   
   private static final Logger LOGGER = LogManager.getLogger();
+  private static volatile OperatingSystem currentPlatform;
   private final String name;
   private final String[] aliases;
   
@@ -48,6 +49,15 @@ public enum OperatingSystem
   }
   
   public static OperatingSystem getCurrentPlatform()
+  {
+    OperatingSystem platform = currentPlatform;
+    if (platform == null) {
+      currentPlatform = platform = findCurrentPlatform();
+    }
+    return platform;
+  }
+  
+  private static OperatingSystem findCurrentPlatform()
   {
     String osName = System.getProperty("os.name").toLowerCase();
     for (OperatingSystem os : values()) {
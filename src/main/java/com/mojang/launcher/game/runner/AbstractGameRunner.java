@@ -12,10 +12,12 @@ import com.mojang.launcher.updater.download.DownloadJob;
 import com.mojang.launcher.updater.download.DownloadListener;
 import com.mojang.launcher.updater.download.Downloadable;
 import com.mojang.launcher.updater.download.ProgressContainer;
+import com.mojang.launcher.updater.download.VerificationIndex;
+import com.mojang.launcher.updater.download.assets.AssetPack;
 import com.mojang.launcher.versions.CompleteVersion;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -25,7 +27,7 @@ public abstract class AbstractGameRunner
 {
   protected static final Logger LOGGER;
   protected final Object lock = new Object();
-  private final List<DownloadJob> jobs = new ArrayList();
+  private final List<DownloadJob> jobs = new CopyOnWriteArrayList();
   protected CompleteVersion version;
   private GameInstanceStatus status = GameInstanceStatus.IDLE;
   private final List<GameRunnerListener> listeners = Lists.newArrayList();
@@ -137,8 +139,7 @@ public abstract class AbstractGameRunner
       
       DownloadJob resourceJob = new DownloadJob("Resources", true, this);
       addJob(resourceJob);
-      getLauncher().getVersionManager().downloadResources(resourceJob, this.version);
-      resourceJob.startDownloading(getLauncher().getDownloaderExecutorService());
+      downloadResources(resourceJob);
     }
     catch (IOException e)
     {
@@ -147,26 +148,30 @@ public abstract class AbstractGameRunner
     }
   }
   
+  protected void downloadResources(DownloadJob resourceJob)
+    throws IOException
+  {
+    getLauncher().getVersionManager().downloadResources(resourceJob, this.version);
+    resourceJob.startDownloading(getLauncher().getDownloaderExecutorService());
+  }
+  
   protected void updateProgressBar()
   {
-    if (hasRemainingJobs()) {
-      synchronized (this.lock)
+    if (hasRemainingJobs())
+    {
+      long total = 0L;
+      long current = 0L;
+      Downloadable longestRunning = null;
+      for (DownloadJob job : this.jobs)
       {
-        long total = 0L;
-        long current = 0L;
-        Downloadable longestRunning = null;
-        for (DownloadJob job : this.jobs) {
-          for (Downloadable file : job.getAllFiles())
-          {
-            total += file.getMonitor().getTotal();
-            current += file.getMonitor().getCurrent();
-            if ((longestRunning == null) || (longestRunning.getEndTime() > 0L) || ((file.getStartTime() < longestRunning.getStartTime()) && (file.getEndTime() == 0L))) {
-              longestRunning = file;
-            }
-          }
+        total += job.getProgressTotal();
+        current += job.getProgressCurrent();
+        Downloadable running = job.getLongestRunning();
+        if ((running != null) && ((longestRunning == null) || (running.getStartTime() < longestRunning.getStartTime()))) {
+          longestRunning = running;
         }
-        getLauncher().getUserInterface().setDownloadProgress(new DownloadProgress(current, total, longestRunning == null ? null : longestRunning.getStatus()));
       }
+      getLauncher().getUserInterface().setDownloadProgress(new DownloadProgress(current, total, longestRunning == null ? null : longestRunning.getStatus()));
     } else {
       getLauncher().getUserInterface().hideDownloadProgress();
     }
@@ -174,12 +179,9 @@ public abstract class AbstractGameRunner
   
   public boolean hasRemainingJobs()
   {
-    synchronized (this.lock)
-    {
-      for (DownloadJob job : this.jobs) {
-        if (!job.isComplete()) {
-          return true;
-        }
+    for (DownloadJob job : this.jobs) {
+      if (!job.isComplete()) {
+        return true;
       }
     }
     return false;
@@ -187,15 +189,14 @@ public abstract class AbstractGameRunner
   
   public void addJob(DownloadJob job)
   {
-    synchronized (this.lock)
-    {
-      this.jobs.add(job);
-    }
+    this.jobs.add(job);
   }
   
   public void onDownloadJobFinished(DownloadJob job)
   {
     updateProgressBar();
+    VerificationIndex.getInstance().save();
+    AssetPack.flushAll();
     synchronized (this.lock)
     {
       if (job.getFailures() > 0)
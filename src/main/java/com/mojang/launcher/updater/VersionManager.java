@@ -14,6 +14,12 @@ public abstract interface VersionManager
   public abstract void refreshVersions()
     throws IOException;
   
+  public abstract boolean refreshCachedVersions()
+    throws IOException;
+  
+  public abstract void revalidateVersions()
+    throws IOException;
+  
   public abstract List<VersionSyncInfo> getVersions();
   
   public abstract List<VersionSyncInfo> getVersions(VersionFilter<? extends ReleaseType> paramVersionFilter);
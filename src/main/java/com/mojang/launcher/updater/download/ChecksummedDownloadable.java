@@ -1,7 +1,7 @@
 package com.mojang.launcher.updater.download;
 
+import com.mojang.launcher.Http;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
@@ -64,13 +64,14 @@ public class ChecksummedDownloadable
             IOUtils.closeQuietly(inputStream);
           }
         }
-        else if (checksumFile.isFile())
-        {
-          this.checksum = readFile(checksumFile, "");
-        }
         else
         {
-          this.checksum = "";
+          Http.release(connection);
+          if (checksumFile.isFile()) {
+            this.checksum = readFile(checksumFile, "");
+          } else {
+            this.checksum = "";
+          }
         }
       }
       catch (IOException e)
@@ -82,17 +83,22 @@ public class ChecksummedDownloadable
         }
       }
     }
+    if (this.checksum != null)
+    {
+      String peer = downloadFromPeer(getUrl(), getTarget(), this.checksum.trim());
+      if (peer != null) {
+        return "Downloaded from peer " + peer + " and checksum matched";
+      }
+    }
     try
     {
-      HttpURLConnection connection = makeConnection(getUrl());
+      HttpURLConnection connection = makeResumableConnection(getUrl(), getTarget());
       int status = connection.getResponseCode();
       if (status / 100 == 2)
       {
         updateExpectedSize(connection);
         
-        InputStream inputStream = new MonitoringInputStream(connection.getInputStream(), getMonitor());
-        FileOutputStream outputStream = new FileOutputStream(getTarget());
-        String digest = copyAndDigest(inputStream, outputStream, "SHA", 40);
+        String digest = downloadToTarget(connection, getTarget(), "SHA", 40);
         if ((this.checksum == null) || (this.checksum.length() == 0)) {
           return "Didn't have checksum so assuming our copy is good";
         }
@@ -101,10 +107,11 @@ public class ChecksummedDownloadable
         }
         throw new RuntimeException(String.format("Checksum did not match downloaded file (Checksum was %s, downloaded %s)",  this.checksum, digest ));
       }
+      Http.release(connection);
       if (getTarget().isFile()) {
         return "Couldn't connect to server (responded with " + status + ") but have local file, assuming it's good";
       }
-      throw new RuntimeException("Server responded with " + status);
+      throw HttpStatusException.create(connection, status);
     }
     catch (IOException e)
     {
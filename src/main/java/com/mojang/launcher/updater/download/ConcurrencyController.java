@@ -0,0 +1,124 @@
+package com.mojang.launcher.updater.download;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class ConcurrencyController
+{
+  private static final Logger LOGGER;
+  private static final double PLATEAU_RATIO = 1.1D;
+  private static final double DECLINE_RATIO = 0.7D;
+  private final String name;
+  private final int minLimit;
+  private final int maxLimit;
+  private int limit;
+  private int inFlight;
+  private boolean slowStart = true;
+  private long windowStart;
+  private long windowBytes;
+  private int windowCompletions;
+  private double lastThroughput;
+  
+  public ConcurrencyController(String name, int initialLimit, int minLimit, int maxLimit)
+  {
+    if ((minLimit < 1) || (maxLimit < minLimit)) {
+      throw new IllegalArgumentException("Invalid concurrency bounds " + minLimit + ".." + maxLimit);
+    }
+    this.name = name;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+  }
+  
+  public synchronized boolean tryAcquire()
+  {
+    if (this.inFlight >= this.limit) {
+      return false;
+    }
+    if (this.windowStart == 0L) {
+      this.windowStart = System.nanoTime();
+    }
+    this.inFlight += 1;
+    return true;
+  }
+  
+  public synchronized void release()
+  {
+    this.inFlight -= 1;
+  }
+  
+  public synchronized void onSuccess(long bytes)
+  {
+    this.inFlight -= 1;
+    if (bytes <= 0L) {
+      return;
+    }
+    this.windowBytes += bytes;
+    this.windowCompletions += 1;
+    if (this.windowCompletions < this.limit) {
+      return;
+    }
+    long elapsed = Math.max(1L, System.nanoTime() - this.windowStart);
+    double throughput = this.windowBytes * 1.0E9D / elapsed;
+    if ((this.lastThroughput == 0.0D) || (throughput >= this.lastThroughput * PLATEAU_RATIO))
+    {
+      setLimit(this.slowStart ? this.limit * 2 : this.limit + 1, throughput);
+    }
+    else if (throughput < this.lastThroughput * DECLINE_RATIO)
+    {
+      this.slowStart = false;
+      setLimit(this.limit - 1, throughput);
+    }
+    else
+    {
+      this.slowStart = false;
+    }
+    this.lastThroughput = throughput;
+    resetWindow();
+  }
+  
+  public synchronized void onFailure()
+  {
+    this.inFlight -= 1;
+    this.slowStart = false;
+    this.lastThroughput = 0.0D;
+    setLimit(this.limit / 2, 0.0D);
+    resetWindow();
+  }
+  
+  public synchronized int getLimit()
+  {
+    return this.limit;
+  }
+  
+  public synchronized int getInFlight()
+  {
+    return this.inFlight;
+  }
+  
+  private void setLimit(int limit, double throughput)
+  {
+    limit = Math.max(this.minLimit, Math.min(this.maxLimit, limit));
+    if (limit != this.limit)
+    {
+      LOGGER.debug("Concurrency for " + this.name + " " + this.limit + " -> " + limit + " (" + (long)(throughput / 1024.0D) + " KiB/s)");
+      this.limit = limit;
+    }
+  }
+  
+  private void resetWindow()
+  {
+    this.windowStart = System.nanoTime();
+    this.windowBytes = 0L;
+    this.windowCompletions = 0;
+  }
+  
+  public String toString()
+  {
+    return "ConcurrencyController{name='" + this.name + '\'' + ", limit=" + this.limit + ", inFlight=" + this.inFlight + '}';
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
@@ -1,13 +1,23 @@
 package com.mojang.launcher.updater.download;
 
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -17,15 +27,34 @@ public class DownloadJob
   private static final Logger LOGGER;
   private static final int MAX_ATTEMPTS_PER_FILE = 5;
   private static final int ASSUMED_AVERAGE_FILE_SIZE = 5242880;
-  private final Queue<Downloadable> remainingFiles = new ConcurrentLinkedQueue();
+  private static final long SMALL_FILE_THRESHOLD = 1048576L;
+  private static final long RETRY_BASE_DELAY = Long.getLong("launcher.download.retryDelay", 500L).longValue();
+  private static final long RETRY_MAX_DELAY = 30000L;
+  private static final ScheduledExecutorService RETRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Download retry scheduler").build());
+  private static final Random RANDOM = new Random();
+  private static final long PROGRESS_INTERVAL = 100000000L;
+  private Queue<Downloadable> remainingSmallFiles;
+  private Queue<Downloadable> remainingLargeFiles;
   private final List<Downloadable> allFiles = Collections.synchronizedList(new ArrayList());
   private final List<Downloadable> failures = Collections.synchronizedList(new ArrayList());
   private final List<Downloadable> successful = Collections.synchronizedList(new ArrayList());
   private final DownloadListener listener;
   private final String name;
   private final boolean ignoreFailures;
-  private final AtomicInteger remainingThreads = new AtomicInteger();
+  private final AtomicInteger activeDownloads = new AtomicInteger();
+  private final AtomicInteger pendingRetries = new AtomicInteger();
+  private final AtomicLong progressCurrent = new AtomicLong();
+  private final AtomicLong progressTotal = new AtomicLong();
+  private final AtomicLong lastProgressUpdate = new AtomicLong(System.nanoTime() - PROGRESS_INTERVAL);
+  private final Set<Downloadable> running = Collections.newSetFromMap(new ConcurrentHashMap());
+  private final AtomicBoolean finished = new AtomicBoolean();
+  private final Object dispatchLock = new Object();
   private final StopWatch stopWatch = new StopWatch();
+  private ThreadPoolExecutor executorService;
+  private ConcurrencyController smallFileConcurrency;
+  private ConcurrencyController largeFileConcurrency;
+  private SchedulingPolicy schedulingPolicy;
+  private volatile long makespan = -1L;
   private boolean started;
   
   public DownloadJob(String name, boolean ignoreFailures, DownloadListener listener, Collection<Downloadable> files)
@@ -33,6 +62,7 @@ public class DownloadJob
     this.name = name;
     this.ignoreFailures = ignoreFailures;
     this.listener = listener;
+    setSchedulingPolicy(SchedulingPolicy.getDefault());
     if (files != null) {
       addDownloadables(files);
     }
@@ -49,9 +79,9 @@ public class DownloadJob
       throw new IllegalStateException("Cannot add to download job that has already started");
     }
     this.allFiles.addAll(downloadables);
-    this.remainingFiles.addAll(downloadables);
     for (Downloadable downloadable : downloadables)
     {
+      getQueue(downloadable).add(downloadable);
       if (downloadable.getExpectedSize() == 0L) {
         downloadable.getMonitor().setTotal(5242880L);
       } else {
@@ -69,7 +99,7 @@ public class DownloadJob
     for (Downloadable downloadable : downloadables)
     {
       this.allFiles.add(downloadable);
-      this.remainingFiles.add(downloadable);
+      getQueue(downloadable).add(downloadable);
       if (downloadable.getExpectedSize() == 0L) {
         downloadable.getMonitor().setTotal(5242880L);
       } else {
@@ -79,6 +109,28 @@ public class DownloadJob
     }
   }
   
+  public void setSchedulingPolicy(SchedulingPolicy schedulingPolicy)
+  {
+    if (this.started) {
+      throw new IllegalStateException("Cannot change scheduling of download job that has already started");
+    }
+    Queue<Downloadable> smallFiles = schedulingPolicy.createQueue();
+    Queue<Downloadable> largeFiles = schedulingPolicy.createQueue();
+    if (this.schedulingPolicy != null)
+    {
+      smallFiles.addAll(this.remainingSmallFiles);
+      largeFiles.addAll(this.remainingLargeFiles);
+    }
+    this.remainingSmallFiles = smallFiles;
+    this.remainingLargeFiles = largeFiles;
+    this.schedulingPolicy = schedulingPolicy;
+  }
+  
+  public SchedulingPolicy getSchedulingPolicy()
+  {
+    return this.schedulingPolicy;
+  }
+  
   public void startDownloading(ThreadPoolExecutor executorService)
   {
     if (this.started) {
@@ -89,64 +141,253 @@ public class DownloadJob
     if (this.allFiles.isEmpty())
     {
       LOGGER.info("Download job '" + this.name + "' skipped as there are no files to download");
-      this.listener.onDownloadJobFinished(this);
+      finish();
     }
     else
     {
       int threads = executorService.getMaximumPoolSize();
-      this.remainingThreads.set(threads);
-      LOGGER.info("Download job '" + this.name + "' started (" + threads + " threads, " + this.allFiles.size() + " files)");
-      for (int i = 0; i < threads; i++) {
-        executorService.submit(new Runnable()
+      this.executorService = executorService;
+      this.smallFileConcurrency = new ConcurrencyController("small files of '" + this.name + "'", 4, 1, threads);
+      this.largeFileConcurrency = new ConcurrencyController("large files of '" + this.name + "'", 2, 1, threads);
+      LOGGER.info("Download job '" + this.name + "' started (up to " + threads + " threads, " + this.allFiles.size() + " files, " + this.schedulingPolicy + " scheduling)");
+      dispatch();
+    }
+  }
+  
+  private Queue<Downloadable> getQueue(Downloadable downloadable)
+  {
+    long size = downloadable.getExpectedSize();
+    if ((size > 0L) && (size < SMALL_FILE_THRESHOLD)) {
+      return this.remainingSmallFiles;
+    }
+    return this.remainingLargeFiles;
+  }
+  
+  private void dispatch()
+  {
+    synchronized (this.dispatchLock)
+    {
+      boolean submitted;
+      do
+      {
+        submitted = dispatchFrom(this.remainingLargeFiles, this.largeFileConcurrency);
+        submitted |= dispatchFrom(this.remainingSmallFiles, this.smallFileConcurrency);
+      } while (submitted);
+    }
+    if ((this.pendingRetries.get() == 0) && (this.remainingLargeFiles.isEmpty()) && (this.remainingSmallFiles.isEmpty()) && (this.activeDownloads.get() == 0)) {
+      finish();
+    }
+  }
+  
+  private void finish()
+  {
+    if (!this.finished.compareAndSet(false, true)) {
+      return;
+    }
+    this.stopWatch.stop();
+    this.makespan = this.stopWatch.getTime();
+    LOGGER.info("Download job '" + this.name + "' makespan was " + this.makespan + " ms for " + this.allFiles.size() + " files using " + this.schedulingPolicy + " scheduling");
+    this.listener.onDownloadJobFinished(this);
+  }
+  
+  private boolean dispatchFrom(final Queue<Downloadable> queue, final ConcurrencyController concurrency)
+  {
+    if ((this.activeDownloads.get() >= this.executorService.getMaximumPoolSize()) || (queue.isEmpty()) || (!concurrency.tryAcquire())) {
+      return false;
+    }
+    this.activeDownloads.incrementAndGet();
+    final Downloadable downloadable = (Downloadable)queue.poll();
+    if (downloadable == null)
+    {
+      this.activeDownloads.decrementAndGet();
+      concurrency.release();
+      return false;
+    }
+    this.executorService.submit(new Runnable()
+    {
+      public void run()
+      {
+        try
         {
-          public void run()
+          int batchSize = queue == DownloadJob.this.remainingSmallFiles ? DownloadJob.this.schedulingPolicy.getBatchSize() : 1;
+          Downloadable next = downloadable;
+          for (int i = 0; (i < batchSize) && (next != null); i++)
           {
-            DownloadJob.this.popAndDownload();
+            DownloadJob.this.running.add(next);
+            try
+            {
+              DownloadJob.this.download(next, concurrency);
+            }
+            finally
+            {
+              DownloadJob.this.running.remove(next);
+            }
+            next = i + 1 < batchSize ? DownloadJob.this.pollBatched(queue, concurrency) : null;
           }
-        });
+        }
+        finally
+        {
+          DownloadJob.this.activeDownloads.decrementAndGet();
+          DownloadJob.this.dispatch();
+        }
       }
+    });
+    return true;
+  }
+  
+  private Downloadable pollBatched(Queue<Downloadable> queue, ConcurrencyController concurrency)
+  {
+    if (!concurrency.tryAcquire()) {
+      return null;
+    }
+    Downloadable downloadable = (Downloadable)queue.poll();
+    if (downloadable == null) {
+      concurrency.release();
     }
+    return downloadable;
   }
   
-  private void popAndDownload()
+  private void download(Downloadable downloadable, ConcurrencyController concurrency)
   {
-    Downloadable downloadable;
-    while ((downloadable = (Downloadable)this.remainingFiles.poll()) != null)
+    if (downloadable.getStartTime() == 0L) {
+      downloadable.setStartTime(System.currentTimeMillis());
+    }
+    if (!downloadable.isRemote())
+    {
+      downloadLocal(downloadable, concurrency);
+      return;
+    }
+    HostCircuitBreaker breaker = HostCircuitBreaker.getInstance();
+    String host = downloadable.getUrl().getHost();
+    if (!breaker.allowRequest(host))
     {
-      if (downloadable.getStartTime() == 0L) {
-        downloadable.setStartTime(System.currentTimeMillis());
+      concurrency.release();
+      if (downloadable.failover())
+      {
+        getQueue(downloadable).add(downloadable);
+        return;
       }
-      if (downloadable.getNumAttempts() > 5)
+      scheduleRetry(downloadable, breaker.getRemainingOpenTime(host) + (long)(RANDOM.nextDouble() * RETRY_BASE_DELAY));
+      return;
+    }
+    try
+    {
+      LOGGER.info("Attempting to download " + downloadable.getTarget() + " for job '" + this.name + "'... (try " + downloadable.getNumAttempts() + ")");
+      String result = downloadable.download();
+      breaker.onSuccess(host);
+      concurrency.onSuccess(downloadable.getMonitor().getCurrent());
+      this.successful.add(downloadable);
+      downloadable.setEndTime(System.currentTimeMillis());
+      downloadable.getMonitor().setCurrent(downloadable.getMonitor().getTotal());
+      LOGGER.info("Finished downloading " + downloadable.getTarget() + " for job '" + this.name + "'" + ": " + result);
+    }
+    catch (Throwable t)
+    {
+      HttpStatusException status = getHttpStatus(t);
+      if (isCongestion(t))
       {
-        if (!this.ignoreFailures) {
-          this.failures.add(downloadable);
-        }
-        LOGGER.error("Gave up trying to download " + downloadable.getUrl() + " for job '" + this.name + "'");
+        breaker.onFailure(host);
+        concurrency.onFailure();
       }
       else
       {
-        try
-        {
-          LOGGER.info("Attempting to download " + downloadable.getTarget() + " for job '" + this.name + "'... (try " + downloadable.getNumAttempts() + ")");
-          String result = downloadable.download();
-          this.successful.add(downloadable);
-          downloadable.setEndTime(System.currentTimeMillis());
-          downloadable.getMonitor().setCurrent(downloadable.getMonitor().getTotal());
-          LOGGER.info("Finished downloading " + downloadable.getTarget() + " for job '" + this.name + "'" + ": " + result);
-        }
-        catch (Throwable t)
-        {
-          LOGGER.warn("Couldn't download " + downloadable.getUrl() + " for job '" + this.name + "'", t);
-          downloadable.getMonitor().setCurrent(downloadable.getMonitor().getTotal());
-          this.remainingFiles.add(downloadable);
+        if (status != null) {
+          breaker.onSuccess(host);
+        } else {
+          breaker.onUnrelatedFailure(host);
         }
+        concurrency.release();
+      }
+      LOGGER.warn("Couldn't download " + downloadable.getUrl() + " for job '" + this.name + "'", t);
+      downloadable.getMonitor().setCurrent(downloadable.getMonitor().getTotal());
+      if (downloadable.getNumAttempts() > MAX_ATTEMPTS_PER_FILE) {
+        giveUp(downloadable);
+      } else if (downloadable.failover()) {
+        getQueue(downloadable).add(downloadable);
+      } else {
+        scheduleRetry(downloadable, Math.max(getRetryDelay(downloadable.getNumAttempts()), status == null ? 0L : status.getRetryAfter()));
+      }
+    }
+  }
+  
+  private static HttpStatusException getHttpStatus(Throwable t)
+  {
+    for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+      if ((cause instanceof HttpStatusException)) {
+        return (HttpStatusException)cause;
+      }
+    }
+    return null;
+  }
+  
+  private static boolean isCongestion(Throwable t)
+  {
+    for (Throwable cause = t; cause != null; cause = cause.getCause())
+    {
+      if ((cause instanceof HttpStatusException)) {
+        return ((HttpStatusException)cause).isCongestion();
+      }
+      if (((cause instanceof SocketTimeoutException)) || ((cause instanceof ConnectException))) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  private void downloadLocal(Downloadable downloadable, ConcurrencyController concurrency)
+  {
+    try
+    {
+      String result = downloadable.download();
+      this.successful.add(downloadable);
+      downloadable.setEndTime(System.currentTimeMillis());
+      LOGGER.debug("Finished " + downloadable.getTarget() + " for job '" + this.name + "'" + ": " + result);
+    }
+    catch (Throwable t)
+    {
+      LOGGER.warn("Couldn't copy " + downloadable.getUrl() + " for job '" + this.name + "'", t);
+      if (downloadable.getNumAttempts() > MAX_ATTEMPTS_PER_FILE) {
+        giveUp(downloadable);
+      } else {
+        scheduleRetry(downloadable, getRetryDelay(downloadable.getNumAttempts()));
       }
     }
-    if (this.remainingThreads.decrementAndGet() <= 0) {
-      this.listener.onDownloadJobFinished(this);
+    finally
+    {
+      concurrency.release();
+      downloadable.getMonitor().setCurrent(downloadable.getMonitor().getTotal());
     }
   }
   
+  private void giveUp(Downloadable downloadable)
+  {
+    if (!this.ignoreFailures) {
+      this.failures.add(downloadable);
+    }
+    LOGGER.error("Gave up trying to download " + downloadable.getUrl() + " for job '" + this.name + "'");
+  }
+  
+  private void scheduleRetry(final Downloadable downloadable, long delay)
+  {
+    LOGGER.debug("Retrying " + downloadable.getUrl() + " for job '" + this.name + "' in " + delay + " ms");
+    this.pendingRetries.incrementAndGet();
+    RETRY_SCHEDULER.schedule(new Runnable()
+    {
+      public void run()
+      {
+        DownloadJob.this.getQueue(downloadable).add(downloadable);
+        DownloadJob.this.pendingRetries.decrementAndGet();
+        DownloadJob.this.dispatch();
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+  }
+  
+  private static long getRetryDelay(int attempts)
+  {
+    long ceiling = Math.min(RETRY_MAX_DELAY, RETRY_BASE_DELAY << Math.min(16, Math.max(0, attempts - 1)));
+    return ceiling / 2L + (long)(RANDOM.nextDouble() * (ceiling / 2L));
+  }
+  
   public boolean shouldIgnoreFailures()
   {
     return this.ignoreFailures;
@@ -159,7 +400,7 @@ public class DownloadJob
   
   public boolean isComplete()
   {
-    return (this.started) && (this.remainingFiles.isEmpty()) && (this.remainingThreads.get() == 0);
+    return (this.started) && (this.pendingRetries.get() == 0) && (this.remainingLargeFiles.isEmpty()) && (this.remainingSmallFiles.isEmpty()) && (this.activeDownloads.get() == 0);
   }
   
   public int getFailures()
@@ -177,9 +418,43 @@ public class DownloadJob
     return this.name;
   }
   
+  public void addProgress(long current, long total)
+  {
+    this.progressCurrent.addAndGet(current);
+    if (total != 0L) {
+      this.progressTotal.addAndGet(total);
+    }
+    updateProgress();
+  }
+  
   public void updateProgress()
   {
-    this.listener.onDownloadJobProgressChanged(this);
+    long now = System.nanoTime();
+    long last = this.lastProgressUpdate.get();
+    if ((now - last >= PROGRESS_INTERVAL) && (this.lastProgressUpdate.compareAndSet(last, now))) {
+      this.listener.onDownloadJobProgressChanged(this);
+    }
+  }
+  
+  public long getProgressCurrent()
+  {
+    return this.progressCurrent.get();
+  }
+  
+  public long getProgressTotal()
+  {
+    return this.progressTotal.get();
+  }
+  
+  public Downloadable getLongestRunning()
+  {
+    Downloadable result = null;
+    for (Downloadable downloadable : this.running) {
+      if ((result == null) || (downloadable.getStartTime() < result.getStartTime())) {
+        result = downloadable;
+      }
+    }
+    return result;
   }
   
   public List<Downloadable> getAllFiles()
@@ -187,6 +462,11 @@ public class DownloadJob
     return this.allFiles;
   }
   
+  public long getMakespan()
+  {
+    return this.makespan;
+  }
+  
   public StopWatch getStopWatch()
   {
     return this.stopWatch;
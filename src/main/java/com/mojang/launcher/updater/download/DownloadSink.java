@@ -0,0 +1,158 @@
+package com.mojang.launcher.updater.download;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DownloadSink
+{
+  private static final int BUFFER_SIZE = 65536;
+  private static final int MAX_POOLED_BUFFERS = 32;
+  private static final Queue<ByteBuffer> POOL = new ConcurrentLinkedQueue();
+  private static final AtomicInteger POOLED = new AtomicInteger();
+
+  public static FileChannel open(File file, boolean append)
+    throws IOException
+  {
+    return new FileOutputStream(file, append).getChannel();
+  }
+
+  public static long transfer(InputStream inputStream, FileChannel channel, MessageDigest digest, long limit)
+    throws IOException
+  {
+    ByteBuffer buffer = acquire();
+    byte[] array = buffer.array();
+    long copied = 0L;
+    try
+    {
+      while ((limit < 0L) || (copied < limit))
+      {
+        int read = inputStream.read(array, 0, limit < 0L ? array.length : (int)Math.min(array.length, limit - copied));
+        if (read < 0) {
+          break;
+        }
+        if (digest != null) {
+          digest.update(array, 0, read);
+        }
+        if (channel != null)
+        {
+          buffer.clear();
+          buffer.limit(read);
+          write(channel, buffer);
+        }
+        copied += read;
+      }
+    }
+    finally
+    {
+      release(buffer);
+    }
+    if ((limit >= 0L) && (copied < limit)) {
+      throw new EOFException("Stream ended after " + copied + " of " + limit + " bytes");
+    }
+    return copied;
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer)
+    throws IOException
+  {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static ByteBuffer acquire()
+  {
+    ByteBuffer buffer = (ByteBuffer)POOL.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocate(BUFFER_SIZE);
+    }
+    POOLED.decrementAndGet();
+    return buffer;
+  }
+
+  private static void release(ByteBuffer buffer)
+  {
+    if (POOLED.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+      POOL.add(buffer);
+    } else {
+      POOLED.decrementAndGet();
+    }
+  }
+
+  public static class TeeInputStream
+    extends FilterInputStream
+  {
+    private final FileChannel channel;
+    private final MessageDigest digest;
+    private long count;
+
+    public TeeInputStream(InputStream inputStream, FileChannel channel, MessageDigest digest)
+    {
+      super(inputStream);
+      this.channel = channel;
+      this.digest = digest;
+    }
+
+    public int read()
+      throws IOException
+    {
+      int read = this.in.read();
+      if (read >= 0) {
+        tee(new byte[] { (byte)read }, 0, 1);
+      }
+      return read;
+    }
+
+    public int read(byte[] buffer, int offset, int length)
+      throws IOException
+    {
+      int read = this.in.read(buffer, offset, length);
+      if (read > 0) {
+        tee(buffer, offset, read);
+      }
+      return read;
+    }
+
+    public long skip(long length)
+      throws IOException
+    {
+      byte[] buffer = new byte[(int)Math.min(length, 4096L)];
+      int read = read(buffer, 0, buffer.length);
+      return read < 0 ? 0L : read;
+    }
+
+    public boolean markSupported()
+    {
+      return false;
+    }
+
+    public long getCount()
+    {
+      return this.count;
+    }
+
+    public long drain()
+      throws IOException
+    {
+      return transfer(this, null, null, -1L);
+    }
+
+    private void tee(byte[] buffer, int offset, int length)
+      throws IOException
+    {
+      this.digest.update(buffer, offset, length);
+      DownloadSink.write(this.channel, ByteBuffer.wrap(buffer, offset, length));
+      this.count += length;
+    }
+  }
+}
@@ -1,25 +1,52 @@
 package com.mojang.launcher.updater.download;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.launcher.Http;
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.math.BigInteger;
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.Proxy;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public abstract class Downloadable
 {
   private static final Logger LOGGER;
+  private static final long SEGMENT_THRESHOLD = Long.getLong("launcher.download.segmentThreshold", 8388608L).longValue();
+  private static final int SEGMENT_COUNT = Integer.getInteger("launcher.download.segments", 4).intValue();
+  private static final ExecutorService SEGMENT_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Downloader segment #%d").build());
   private final URL url;
+  private final MirrorList mirrors;
+  private volatile String mirrorBase;
   private final File target;
   private final boolean forceDownload;
   private final Proxy proxy;
@@ -33,6 +60,7 @@ public abstract class Downloadable
   {
     this.proxy = proxy;
     this.url = remoteFile;
+    this.mirrors = MirrorList.forUrl(remoteFile);
     this.target = localFile;
     this.forceDownload = forceDownload;
     this.monitor = new ProgressContainer();
@@ -55,6 +83,10 @@ public abstract class Downloadable
   
   public static String getDigest(File file, String algorithm, int hashLength)
   {
+    String cached = VerificationIndex.getInstance().getDigest(file, algorithm);
+    if (cached != null) {
+      return cached;
+    }
     DigestInputStream stream = null;
     try
     {
@@ -74,18 +106,22 @@ public abstract class Downloadable
     {
       closeSilently(stream);
     }
-    return String.format("%1$0" + hashLength + "x", new BigInteger(1, stream.getMessageDigest().digest()) );
+    String digest = String.format("%1$0" + hashLength + "x", new BigInteger(1, stream.getMessageDigest().digest()) );
+    VerificationIndex.getInstance().putDigest(file, algorithm, digest);
+    return digest;
   }
   
   public abstract String download()
     throws IOException;
   
   protected void updateExpectedSize(HttpURLConnection connection)
+    throws IOException
   {
     if (this.expectedSize == 0L)
     {
-      this.monitor.setTotal(connection.getContentLength());
-      setExpectedSize(connection.getContentLength());
+      long size = getRemoteSize(connection);
+      this.monitor.setTotal(size);
+      setExpectedSize(size);
     }
     else
     {
@@ -96,7 +132,13 @@ public abstract class Downloadable
   protected HttpURLConnection makeConnection(URL url)
     throws IOException
   {
-    HttpURLConnection connection = (HttpURLConnection)url.openConnection(this.proxy);
+    return openConnection(url);
+  }
+  
+  private HttpURLConnection openConnection(URL url)
+    throws IOException
+  {
+    HttpURLConnection connection = Http.openConnection(url, this.proxy);
     
 
     connection.setUseCaches(false);
@@ -112,7 +154,99 @@ public abstract class Downloadable
   
   public URL getUrl()
   {
-    return this.url;
+    return getMirrorUrl(this.url);
+  }
+  
+  public boolean isRemote()
+  {
+    String protocol = this.url.getProtocol();
+    return (protocol.equalsIgnoreCase("http")) || (protocol.equalsIgnoreCase("https"));
+  }
+  
+  protected URL getMirrorUrl(URL url)
+  {
+    String base = this.mirrorBase;
+    if (base == null) {
+      return url;
+    }
+    try
+    {
+      return this.mirrors.rebase(url, base);
+    }
+    catch (MalformedURLException e)
+    {
+      return url;
+    }
+  }
+  
+  public boolean failover()
+  {
+    if (this.mirrors == null) {
+      return false;
+    }
+    String current = this.mirrors.getBaseFor(getUrl().toString());
+    String next = this.mirrors.getNext(current);
+    if (next == null) {
+      return false;
+    }
+    LOGGER.info("Switching " + getTarget().getName() + " from mirror " + current + " to " + next);
+    this.mirrorBase = next;
+    return !next.equals(this.mirrors.getBaseFor(this.url.toString()));
+  }
+  
+  protected String downloadFromPeer(URL url, File target, String sha1)
+  {
+    PeerCache peers = PeerCache.getInstance();
+    if ((!peers.isEnabled()) || (this.mirrors == null) || (StringUtils.isEmpty(sha1))) {
+      return null;
+    }
+    String base = this.mirrors.getBaseFor(url.toString());
+    if (base == null) {
+      return null;
+    }
+    String path = this.mirrors.getName() + "/" + url.toString().substring(base.length());
+    File partial = new File(target.getAbsolutePath() + ".peer");
+    for (String peer : peers.getPeers())
+    {
+      HttpURLConnection connection = null;
+      try
+      {
+        connection = peers.openConnection(peer, path);
+        if (connection.getResponseCode() != 200)
+        {
+          Http.release(connection);
+          peers.onMiss(peer);
+          continue;
+        }
+        MessageDigest digest = createDigest("SHA-1");
+        FileChannel channel = DownloadSink.open(partial, false);
+        try
+        {
+          copy(new MonitoringInputStream(connection.getInputStream(), this.monitor), channel, digest, getRemoteSize(connection));
+        }
+        finally
+        {
+          closeSilently(channel);
+        }
+        String hash = toHex(digest, 40);
+        if (hash.equalsIgnoreCase(sha1))
+        {
+          commitPartial(partial, target);
+          recordDigest(target, "SHA-1", hash);
+          peers.onHit(peer);
+          return peer;
+        }
+        LOGGER.warn("Peer " + peer + " sent " + path + " with the wrong hash (expected " + sha1 + " but had " + hash + ")");
+      }
+      catch (IOException e)
+      {
+        LOGGER.debug("Couldn't get " + path + " from peer " + peer, e);
+        peers.onFailure(peer);
+      }
+      FileUtils.deleteQuietly(partial);
+      this.monitor.setCurrent(0L);
+    }
+    return null;
   }
   
   public File getTarget()
@@ -179,6 +313,403 @@ public abstract class Downloadable
     return String.format("%1$0" + hashLength + "x", new BigInteger(1, digest.digest()));
   }
   
+  protected HttpURLConnection makeResumableConnection(URL url, File target)
+    throws IOException
+  {
+    File partial = getPartialFile(target, 0);
+    if ((partial.length() == 0L) && (!getPartialFile(target, 1).isFile())) {
+      return makeConnection(url);
+    }
+    String validator = readValidator(target);
+    if (validator == null)
+    {
+      LOGGER.info("Discarding partial download of " + target + " as there's nothing to check it against");
+      deletePartialFiles(target);
+      return makeConnection(url);
+    }
+    HttpURLConnection connection = makeConnection(url);
+    connection.setRequestProperty("Range", "bytes=" + partial.length() + "-");
+    connection.setRequestProperty("If-Range", validator);
+    if (connection.getResponseCode() == 416)
+    {
+      LOGGER.warn("Server refused to resume " + url + " from " + partial.length() + " bytes, starting over");
+      Http.release(connection);
+      deletePartialFiles(target);
+      connection = makeConnection(url);
+    }
+    return connection;
+  }
+  
+  private long getResumeOffset(HttpURLConnection connection, File target)
+    throws IOException
+  {
+    if (connection.getResponseCode() != 206)
+    {
+      deletePartialFiles(target);
+      saveValidator(connection, target);
+      return 0L;
+    }
+    long[] range = parseContentRange(connection.getHeaderField("Content-Range"));
+    if ((range == null) || (range[0] != getPartialFile(target, 0).length()))
+    {
+      Http.release(connection);
+      deletePartialFiles(target);
+      throw new IOException("Server resumed " + connection.getURL() + " at an unexpected position (" + connection.getHeaderField("Content-Range") + ")");
+    }
+    LOGGER.info("Resuming download of " + target + " from " + range[0] + " bytes");
+    return range[0];
+  }
+  
+  protected String downloadToTarget(HttpURLConnection connection, File target, String algorithm, int hashLength)
+    throws IOException
+  {
+    File partial = getPartialFile(target, 0);
+    long total = getRemoteSize(connection);
+    long offset = getResumeOffset(connection, target);
+    this.monitor.setCurrent(offset);
+    
+    int segments = getSegmentCount(total);
+    boolean resumingSegments = getPartialFile(target, 1).isFile();
+    boolean acceptsRanges = (offset > 0L) || ("bytes".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges")));
+    if ((segments > 1) && (acceptsRanges) && ((offset == 0L) || (resumingSegments))) {
+      return downloadSegments(connection, target, offset, total, segments, algorithm, hashLength);
+    }
+    MessageDigest digest = createDigest(algorithm);
+    if (offset > 0L) {
+      updateDigest(partial, digest);
+    }
+    InputStream inputStream = new MonitoringInputStream(connection.getInputStream(), this.monitor);
+    FileChannel channel = DownloadSink.open(partial, offset > 0L);
+    try
+    {
+      copy(inputStream, channel, digest, total < 0L ? -1L : total - offset);
+    }
+    finally
+    {
+      closeSilently(inputStream);
+      closeSilently(channel);
+    }
+    commitPartial(partial, target);
+    return recordDigest(target, algorithm, toHex(digest, hashLength));
+  }
+  
+  protected String[] downloadAndInflate(HttpURLConnection connection, File compressed, File target)
+    throws IOException
+  {
+    File partial = getPartialFile(compressed, 0);
+    File inflated = getPartialFile(target, 0);
+    long total = getRemoteSize(connection);
+    long offset = getResumeOffset(connection, compressed);
+    this.monitor.setCurrent(offset);
+    
+    MessageDigest compressedDigest = createDigest("SHA-1");
+    MessageDigest digest = createDigest("SHA-1");
+    InputStream prefix = null;
+    if (offset > 0L)
+    {
+      updateDigest(partial, compressedDigest);
+      prefix = new BoundedInputStream(new FileInputStream(partial), offset);
+    }
+    FileChannel compressedChannel = DownloadSink.open(partial, offset > 0L);
+    FileChannel channel = null;
+    InputStream inputStream = null;
+    try
+    {
+      DownloadSink.TeeInputStream remote = new DownloadSink.TeeInputStream(new MonitoringInputStream(connection.getInputStream(), this.monitor), compressedChannel, compressedDigest);
+      inputStream = prefix == null ? remote : new SequenceInputStream(prefix, remote);
+      channel = DownloadSink.open(inflated, false);
+      DownloadSink.transfer(new GZIPInputStream(inputStream, 65536), channel, digest, -1L);
+      remote.drain();
+      if ((total >= 0L) && (remote.getCount() != total - offset)) {
+        throw new EOFException("Connection closed after " + remote.getCount() + " of " + (total - offset) + " bytes");
+      }
+    }
+    catch (ZipException e)
+    {
+      closeSilently(channel);
+      closeSilently(compressedChannel);
+      deletePartialFiles(compressed);
+      FileUtils.deleteQuietly(inflated);
+      throw e;
+    }
+    catch (IOException e)
+    {
+      closeSilently(channel);
+      FileUtils.deleteQuietly(inflated);
+      throw e;
+    }
+    finally
+    {
+      closeSilently(inputStream);
+      closeSilently(prefix);
+      closeSilently(compressedChannel);
+      closeSilently(channel);
+    }
+    commitPartial(partial, compressed);
+    commitPartial(inflated, target);
+    return new String[] { recordDigest(compressed, "SHA-1", toHex(compressedDigest, 40)), recordDigest(target, "SHA-1", toHex(digest, 40)) };
+  }
+  
+  private String downloadSegments(HttpURLConnection connection, File target, long offset, long total, int segments, String algorithm, int hashLength)
+    throws IOException
+  {
+    File partial = getPartialFile(target, 0);
+    long segmentSize = (total + segments - 1L) / segments;
+    if (offset > segmentSize)
+    {
+      Http.release(connection);
+      deletePartialFiles(target);
+      throw new IOException("Partial download of " + target + " does not match its segments, starting over");
+    }
+    LOGGER.info("Downloading " + target + " in " + segments + " segments of " + segmentSize + " bytes");
+    List<Future<Void>> futures = new ArrayList();
+    for (int i = 1; i < segments; i++)
+    {
+      long start = i * segmentSize;
+      futures.add(SEGMENT_EXECUTOR.submit(new SegmentDownload(connection.getURL(), target, i, start, Math.min(total, start + segmentSize))));
+    }
+    Throwable failure = null;
+    InputStream inputStream = null;
+    FileChannel channel = null;
+    try
+    {
+      inputStream = new MonitoringInputStream(connection.getInputStream(), this.monitor);
+      channel = DownloadSink.open(partial, offset > 0L);
+      copy(inputStream, channel, null, segmentSize - offset);
+    }
+    catch (Throwable t)
+    {
+      failure = t;
+    }
+    finally
+    {
+      closeSilently(inputStream);
+      closeSilently(channel);
+      Http.release(connection);
+    }
+    for (Future<Void> future : futures) {
+      try
+      {
+        future.get();
+      }
+      catch (ExecutionException e)
+      {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        if (failure == null) {
+          failure = new InterruptedIOException("Interrupted while downloading " + target);
+        }
+      }
+    }
+    if ((failure instanceof IOException)) {
+      throw ((IOException)failure);
+    }
+    if ((failure instanceof RuntimeException)) {
+      throw ((RuntimeException)failure);
+    }
+    if (failure != null) {
+      throw new IOException("Couldn't download segment of " + target, failure);
+    }
+    MessageDigest digest = createDigest(algorithm);
+    updateDigest(partial, digest);
+    channel = DownloadSink.open(partial, true);
+    try
+    {
+      for (int i = 1; i < segments; i++) {
+        copy(new FileInputStream(getPartialFile(target, i)), channel, digest, -1L);
+      }
+    }
+    finally
+    {
+      closeSilently(channel);
+    }
+    if (partial.length() != total)
+    {
+      deletePartialFiles(target);
+      throw new IOException("Reassembled " + target + " is " + partial.length() + " bytes but expected " + total);
+    }
+    commitPartial(partial, target);
+    for (int i = 1; i < segments; i++) {
+      FileUtils.deleteQuietly(getPartialFile(target, i));
+    }
+    return recordDigest(target, algorithm, toHex(digest, hashLength));
+  }
+  
+  private static String recordDigest(File target, String algorithm, String digest)
+  {
+    VerificationIndex.getInstance().putWrittenDigest(target, algorithm, digest);
+    return digest;
+  }
+  
+  private static int getSegmentCount(long total)
+  {
+    if ((SEGMENT_COUNT < 2) || (total < SEGMENT_THRESHOLD)) {
+      return 1;
+    }
+    return SEGMENT_COUNT;
+  }
+  
+  public static File getPartialFile(File target, int segment)
+  {
+    return new File(target.getAbsolutePath() + (segment == 0 ? ".part" : ".part" + segment));
+  }
+  
+  private static File getValidatorFile(File target)
+  {
+    return new File(target.getAbsolutePath() + ".part.validator");
+  }
+  
+  private static String readValidator(File target)
+  {
+    File file = getValidatorFile(target);
+    if (!file.isFile()) {
+      return null;
+    }
+    try
+    {
+      return StringUtils.trimToNull(FileUtils.readFileToString(file, Charsets.UTF_8));
+    }
+    catch (IOException e)
+    {
+      LOGGER.debug("Couldn't read " + file, e);
+    }
+    return null;
+  }
+  
+  private static void saveValidator(HttpURLConnection connection, File target)
+  {
+    String validator = connection.getHeaderField("ETag");
+    if ((validator == null) || (validator.startsWith("W/"))) {
+      validator = connection.getHeaderField("Last-Modified");
+    }
+    File file = getValidatorFile(target);
+    if (validator == null)
+    {
+      FileUtils.deleteQuietly(file);
+      return;
+    }
+    try
+    {
+      FileUtils.writeStringToFile(file, validator, Charsets.UTF_8);
+    }
+    catch (IOException e)
+    {
+      LOGGER.debug("Couldn't write " + file + ", the download won't be resumable", e);
+    }
+  }
+  
+  public static void deletePartialFiles(File target)
+  {
+    File directory = target.getAbsoluteFile().getParentFile();
+    if (directory == null) {
+      return;
+    }
+    final String prefix = target.getName() + ".part";
+    File[] partials = directory.listFiles(new FilenameFilter()
+    {
+      public boolean accept(File dir, String name)
+      {
+        return (name.startsWith(prefix)) && (name.substring(prefix.length()).matches("\\d*|\\.validator"));
+      }
+    });
+    if (partials != null) {
+      for (File partial : partials) {
+        FileUtils.deleteQuietly(partial);
+      }
+    }
+  }
+  
+  private static void commitPartial(File partial, File target)
+    throws IOException
+  {
+    if ((target.isFile()) && (!target.delete())) {
+      throw new IOException("Couldn't replace " + target);
+    }
+    if (!partial.renameTo(target))
+    {
+      FileUtils.copyFile(partial, target);
+      FileUtils.deleteQuietly(partial);
+    }
+    FileUtils.deleteQuietly(getValidatorFile(target));
+  }
+  
+  protected static long getRemoteSize(HttpURLConnection connection)
+    throws IOException
+  {
+    if (connection.getResponseCode() == 206)
+    {
+      long[] range = parseContentRange(connection.getHeaderField("Content-Range"));
+      if (range != null) {
+        return range[1];
+      }
+    }
+    String length = connection.getHeaderField("Content-Length");
+    if (length != null) {
+      try
+      {
+        return Long.parseLong(length.trim());
+      }
+      catch (NumberFormatException ignored) {}
+    }
+    return -1L;
+  }
+  
+  private static long[] parseContentRange(String header)
+  {
+    if ((header == null) || (!header.startsWith("bytes "))) {
+      return null;
+    }
+    try
+    {
+      String[] parts = header.substring(6).trim().split("[-/]");
+      long total = parts[2].equals("*") ? -1L : Long.parseLong(parts[2]);
+      return new long[] { Long.parseLong(parts[0]), total };
+    }
+    catch (RuntimeException ignored) {}
+    return null;
+  }
+  
+  private static MessageDigest createDigest(String algorithm)
+  {
+    try
+    {
+      return MessageDigest.getInstance(algorithm);
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new RuntimeException("Missing Digest." + algorithm, e);
+    }
+  }
+  
+  private static void updateDigest(File file, MessageDigest digest)
+    throws IOException
+  {
+    copy(new FileInputStream(file), null, digest, -1L);
+  }
+  
+  private static long copy(InputStream inputStream, FileChannel channel, MessageDigest digest, long limit)
+    throws IOException
+  {
+    try
+    {
+      return DownloadSink.transfer(inputStream, channel, digest, limit);
+    }
+    finally
+    {
+      closeSilently(inputStream);
+    }
+  }
+  
+  private static String toHex(MessageDigest digest, int hashLength)
+  {
+    return String.format("%1$0" + hashLength + "x", new BigInteger(1, digest.digest()));
+  }
+  
   protected void ensureFileWritable(File target)
   {
     if ((target.getParentFile() != null) && (!target.getParentFile().isDirectory()))
@@ -218,6 +749,68 @@ public abstract class Downloadable
   {
     this.endTime = endTime;
   }
+  private class SegmentDownload
+    implements Callable<Void>
+  {
+    private final URL url;
+    private final File target;
+    private final int index;
+    private final long start;
+    private final long end;
+    
+    public SegmentDownload(URL url, File target, int index, long start, long end)
+    {
+      this.url = url;
+      this.target = target;
+      this.index = index;
+      this.start = start;
+      this.end = end;
+    }
+    
+    public Void call()
+      throws IOException
+    {
+      File file = Downloadable.getPartialFile(this.target, this.index);
+      long length = this.end - this.start;
+      long have = file.isFile() ? file.length() : 0L;
+      if (have > length)
+      {
+        FileUtils.deleteQuietly(file);
+        have = 0L;
+      }
+      Downloadable.this.monitor.addProgress(have);
+      if (have == length) {
+        return null;
+      }
+      HttpURLConnection connection = Downloadable.this.openConnection(this.url);
+      connection.setRequestProperty("Range", "bytes=" + (this.start + have) + "-" + (this.end - 1L));
+      String validator = Downloadable.readValidator(this.target);
+      if (validator != null) {
+        connection.setRequestProperty("If-Range", validator);
+      }
+      FileChannel channel = null;
+      try
+      {
+        int status = connection.getResponseCode();
+        long[] range = Downloadable.parseContentRange(connection.getHeaderField("Content-Range"));
+        if ((status == 429) || (status / 100 == 5)) {
+          throw HttpStatusException.create(connection, status, "Server responded with " + status + " to ranged request for segment " + this.index + " of " + this.url);
+        }
+        if ((status != 206) || (range == null) || (range[0] != this.start + have)) {
+          throw new IOException("Server responded with " + status + " to ranged request for segment " + this.index + " of " + this.url);
+        }
+        channel = DownloadSink.open(file, have > 0L);
+        Downloadable.copy(new MonitoringInputStream(connection.getInputStream(), Downloadable.this.monitor), channel, null, length - have);
+      }
+      finally
+      {
+        Downloadable.closeSilently(channel);
+        Http.release(connection);
+      }
+      return null;
+    }
+  }
+  
   static {
       LOGGER = LogManager.getLogger();
   }
@@ -1,9 +1,8 @@
 package com.mojang.launcher.updater.download;
 
+import com.mojang.launcher.Http;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.Proxy;
 import java.net.URL;
@@ -23,18 +22,18 @@ public class EtagDownloadable
     ensureFileWritable(getTarget());
     try
     {
-      HttpURLConnection connection = makeConnection(getUrl());
+      HttpURLConnection connection = makeResumableConnection(getUrl(), getTarget());
       int status = connection.getResponseCode();
-      if (status == 304) {
+      if (status == 304)
+      {
+        Http.release(connection);
         return "Used own copy as it matched etag";
       }
       if (status / 100 == 2)
       {
         updateExpectedSize(connection);
         
-        InputStream inputStream = new MonitoringInputStream(connection.getInputStream(), getMonitor());
-        FileOutputStream outputStream = new FileOutputStream(getTarget());
-        String md5 = copyAndDigest(inputStream, outputStream, "MD5", 32);
+        String md5 = downloadToTarget(connection, getTarget(), "MD5", 32);
         String etag = getEtag(connection.getHeaderField("ETag"));
         if (etag.contains("-")) {
           return "Didn't have etag so assuming our copy is good";
@@ -44,10 +43,11 @@ public class EtagDownloadable
         }
         throw new RuntimeException(String.format("E-tag did not match downloaded MD5 (ETag was %s, downloaded %s)",  etag, md5 ));
       }
+      Http.release(connection);
       if (getTarget().isFile()) {
         return "Couldn't connect to server (responded with " + status + ") but have local file, assuming it's good";
       }
-      throw new RuntimeException("Server responded with " + status);
+      throw HttpStatusException.create(connection, status);
     }
     catch (IOException e)
     {
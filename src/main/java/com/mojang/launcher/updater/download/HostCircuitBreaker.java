@@ -0,0 +1,132 @@
+package com.mojang.launcher.updater.download;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class HostCircuitBreaker
+{
+  private static final Logger LOGGER;
+  private static final int FAILURE_THRESHOLD = Integer.getInteger("launcher.download.breakerThreshold", 5).intValue();
+  private static final long OPEN_TIME = Long.getLong("launcher.download.breakerOpenTime", 5000L).longValue();
+  private static final long MAX_OPEN_TIME = 60000L;
+  private static final HostCircuitBreaker INSTANCE = new HostCircuitBreaker();
+  private final Map<String, HostState> hosts = new ConcurrentHashMap();
+  
+  public static HostCircuitBreaker getInstance()
+  {
+    return INSTANCE;
+  }
+  
+  public boolean allowRequest(String host)
+  {
+    return getState(host).allowRequest();
+  }
+  
+  public long getRemainingOpenTime(String host)
+  {
+    return getState(host).getRemainingOpenTime();
+  }
+  
+  public void onSuccess(String host)
+  {
+    getState(host).onSuccess(host);
+  }
+  
+  public void onFailure(String host)
+  {
+    getState(host).onFailure(host);
+  }
+  
+  public void onUnrelatedFailure(String host)
+  {
+    getState(host).onUnrelatedFailure();
+  }
+  
+  private HostState getState(String host)
+  {
+    HostState state = (HostState)this.hosts.get(host);
+    if (state == null)
+    {
+      synchronized (this.hosts)
+      {
+        state = (HostState)this.hosts.get(host);
+        if (state == null)
+        {
+          state = new HostState();
+          this.hosts.put(host, state);
+        }
+      }
+    }
+    return state;
+  }
+  
+  private static class HostState
+  {
+    private int consecutiveFailures;
+    private long openTime;
+    private long openUntil;
+    private boolean trialInFlight;
+    
+    public synchronized boolean allowRequest()
+    {
+      if (this.openUntil == 0L) {
+        return true;
+      }
+      if ((this.trialInFlight) || (System.currentTimeMillis() < this.openUntil)) {
+        return false;
+      }
+      this.trialInFlight = true;
+      return true;
+    }
+    
+    public synchronized long getRemainingOpenTime()
+    {
+      if (this.openUntil == 0L) {
+        return 0L;
+      }
+      return Math.max(this.trialInFlight ? this.openTime : 0L, this.openUntil - System.currentTimeMillis());
+    }
+    
+    public synchronized void onSuccess(String host)
+    {
+      if (this.openUntil != 0L) {
+        LOGGER.info("Host " + host + " is responding again, closing circuit");
+      }
+      this.consecutiveFailures = 0;
+      this.openTime = 0L;
+      this.openUntil = 0L;
+      this.trialInFlight = false;
+    }
+    
+    public synchronized void onUnrelatedFailure()
+    {
+      this.trialInFlight = false;
+    }
+    
+    public synchronized void onFailure(String host)
+    {
+      this.consecutiveFailures += 1;
+      if (this.trialInFlight)
+      {
+        this.trialInFlight = false;
+        this.openTime = Math.min(MAX_OPEN_TIME, this.openTime * 2L);
+      }
+      else if ((this.openUntil != 0L) || (this.consecutiveFailures < FAILURE_THRESHOLD))
+      {
+        return;
+      }
+      else
+      {
+        this.openTime = OPEN_TIME;
+      }
+      this.openUntil = System.currentTimeMillis() + this.openTime;
+      LOGGER.warn("Host " + host + " failed " + this.consecutiveFailures + " time(s) in a row, pausing requests to it for " + this.openTime + " ms");
+    }
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
@@ -0,0 +1,63 @@
+package com.mojang.launcher.updater.download;
+
+import java.net.HttpURLConnection;
+import org.apache.commons.lang3.StringUtils;
+
+public class HttpStatusException
+  extends RuntimeException
+{
+  private final int status;
+  private final long retryAfter;
+  
+  public HttpStatusException(String message, int status, long retryAfter)
+  {
+    super(message);
+    this.status = status;
+    this.retryAfter = retryAfter;
+  }
+  
+  public static HttpStatusException create(HttpURLConnection connection, int status)
+  {
+    return create(connection, status, "Server responded with " + status);
+  }
+  
+  public static HttpStatusException create(HttpURLConnection connection, int status, String message)
+  {
+    return new HttpStatusException(message, status, parseRetryAfter(connection));
+  }
+  
+  private static long parseRetryAfter(HttpURLConnection connection)
+  {
+    String value = StringUtils.trimToNull(connection.getHeaderField("Retry-After"));
+    if (value == null) {
+      return -1L;
+    }
+    if (StringUtils.isNumeric(value)) {
+      try
+      {
+        return Long.parseLong(value) * 1000L;
+      }
+      catch (NumberFormatException e)
+      {
+        return -1L;
+      }
+    }
+    long date = connection.getHeaderFieldDate("Retry-After", -1L);
+    return date < 0L ? -1L : Math.max(0L, date - System.currentTimeMillis());
+  }
+  
+  public int getStatus()
+  {
+    return this.status;
+  }
+  
+  public long getRetryAfter()
+  {
+    return this.retryAfter;
+  }
+  
+  public boolean isCongestion()
+  {
+    return (this.status == 429) || (this.status / 100 == 5);
+  }
+}
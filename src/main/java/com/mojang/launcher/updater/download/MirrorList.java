@@ -0,0 +1,219 @@
+package com.mojang.launcher.updater.download;
+
+import com.mojang.launcher.Http;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class MirrorList
+{
+  private static final Logger LOGGER;
+  private static final int PROBE_TIMEOUT = 3000;
+  private static final List<MirrorList> REGISTERED = new CopyOnWriteArrayList();
+  private final String name;
+  private final List<Mirror> configured;
+  private volatile List<Mirror> ordered;
+  
+  public MirrorList(String name, List<String> baseUrls)
+  {
+    if (baseUrls.isEmpty()) {
+      throw new IllegalArgumentException("Mirror list " + name + " needs at least one base url");
+    }
+    this.name = name;
+    List<Mirror> mirrors = new ArrayList();
+    for (String baseUrl : baseUrls) {
+      mirrors.add(new Mirror(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/"));
+    }
+    this.configured = Collections.unmodifiableList(mirrors);
+    this.ordered = this.configured;
+  }
+  
+  public static MirrorList create(String name, String upstream)
+  {
+    List<String> baseUrls = new ArrayList();
+    String property = System.getProperty("launcher.mirrors." + name);
+    if (property != null) {
+      for (String baseUrl : StringUtils.split(property, ", ")) {
+        baseUrls.add(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+      }
+    }
+    if (!baseUrls.contains(upstream)) {
+      baseUrls.add(upstream);
+    }
+    MirrorList mirrors = new MirrorList(name, baseUrls);
+    register(mirrors);
+    return mirrors;
+  }
+  
+  public static void register(MirrorList mirrors)
+  {
+    REGISTERED.add(mirrors);
+  }
+  
+  public static MirrorList forUrl(URL url)
+  {
+    String path = url.toString();
+    for (MirrorList mirrors : REGISTERED) {
+      if (mirrors.getBaseFor(path) != null) {
+        return mirrors;
+      }
+    }
+    return null;
+  }
+  
+  public static void probeAll(Proxy proxy)
+  {
+    for (MirrorList mirrors : REGISTERED) {
+      if (mirrors.configured.size() > 1) {
+        mirrors.probe(proxy);
+      }
+    }
+  }
+  
+  public String getName()
+  {
+    return this.name;
+  }
+  
+  public String getPrimary()
+  {
+    for (Mirror mirror : this.ordered) {
+      if (mirror.isAvailable()) {
+        return mirror.baseUrl;
+      }
+    }
+    return ((Mirror)this.ordered.get(0)).baseUrl;
+  }
+  
+  public String getNext(String current)
+  {
+    List<Mirror> mirrors = this.ordered;
+    int index = -1;
+    for (int i = 0; i < mirrors.size(); i++) {
+      if (((Mirror)mirrors.get(i)).baseUrl.equals(current)) {
+        index = i;
+      }
+    }
+    for (int i = 0; i < mirrors.size(); i++)
+    {
+      Mirror mirror = (Mirror)mirrors.get((index + 1 + i) % mirrors.size());
+      if ((!mirror.baseUrl.equals(current)) && (mirror.isAvailable())) {
+        return mirror.baseUrl;
+      }
+    }
+    return null;
+  }
+  
+  public String getBaseFor(String url)
+  {
+    String result = null;
+    for (Mirror mirror : this.configured) {
+      if ((url.startsWith(mirror.baseUrl)) && ((result == null) || (mirror.baseUrl.length() > result.length()))) {
+        result = mirror.baseUrl;
+      }
+    }
+    return result;
+  }
+  
+  public URL rebase(URL url, String baseUrl)
+    throws MalformedURLException
+  {
+    String path = url.toString();
+    String current = getBaseFor(path);
+    if ((current == null) || (current.equals(baseUrl))) {
+      return url;
+    }
+    return new URL(baseUrl + path.substring(current.length()));
+  }
+  
+  public void probe(Proxy proxy)
+  {
+    for (Mirror mirror : this.configured) {
+      mirror.probe(proxy);
+    }
+    List<Mirror> mirrors = new ArrayList(this.configured);
+    Collections.sort(mirrors, new Comparator<Mirror>()
+    {
+      public int compare(Mirror a, Mirror b)
+      {
+        return a.latency < b.latency ? -1 : a.latency > b.latency ? 1 : 0;
+      }
+    });
+    this.ordered = Collections.unmodifiableList(mirrors);
+    LOGGER.info("Mirrors for " + this.name + " ordered by latency: " + mirrors);
+  }
+  
+  public String toString()
+  {
+    return "MirrorList{name='" + this.name + '\'' + ", mirrors=" + this.ordered + '}';
+  }
+  
+  private static class Mirror
+  {
+    private final String baseUrl;
+    private final String host;
+    private volatile long latency = Long.MAX_VALUE;
+    
+    public Mirror(String baseUrl)
+    {
+      this.baseUrl = baseUrl;
+      String host;
+      try
+      {
+        host = new URL(baseUrl).getHost();
+      }
+      catch (MalformedURLException e)
+      {
+        throw new IllegalArgumentException("Invalid mirror " + baseUrl, e);
+      }
+      this.host = host;
+    }
+    
+    public boolean isAvailable()
+    {
+      return HostCircuitBreaker.getInstance().getRemainingOpenTime(this.host) == 0L;
+    }
+    
+    public void probe(Proxy proxy)
+    {
+      long start = System.nanoTime();
+      try
+      {
+        HttpURLConnection connection = Http.openConnection(new URL(this.baseUrl), proxy);
+        connection.setRequestMethod("HEAD");
+        connection.setConnectTimeout(PROBE_TIMEOUT);
+        connection.setReadTimeout(PROBE_TIMEOUT);
+        int status = connection.getResponseCode();
+        Http.release(connection);
+        if (status / 100 == 5) {
+          throw new IOException("Server responded with " + status);
+        }
+        this.latency = (System.nanoTime() - start) / 1000000L;
+      }
+      catch (IOException e)
+      {
+        LOGGER.warn("Couldn't reach mirror " + this.baseUrl + " (" + e.getClass().getSimpleName() + ": '" + e.getMessage() + "')");
+        this.latency = Long.MAX_VALUE;
+      }
+    }
+    
+    public String toString()
+    {
+      return this.baseUrl + (this.latency == Long.MAX_VALUE ? " (unreachable)" : " (" + this.latency + " ms)");
+    }
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
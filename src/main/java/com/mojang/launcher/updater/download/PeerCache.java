@@ -0,0 +1,379 @@
+package com.mojang.launcher.updater.download;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.launcher.Http;
+import com.mojang.launcher.updater.download.assets.AssetPack;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.net.Proxy;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class PeerCache
+{
+  private static final Logger LOGGER;
+  private static final boolean ENABLED = Boolean.getBoolean("launcher.peers.enabled");
+  private static final int PORT = Integer.getInteger("launcher.peers.port", 25580).intValue();
+  private static final String DISCOVERY_GROUP = System.getProperty("launcher.peers.group", "239.255.25.80");
+  private static final int DISCOVERY_PORT = Integer.getInteger("launcher.peers.discoveryPort", 25581).intValue();
+  private static final String ANNOUNCEMENT = "minecraft-launcher-peer";
+  private static final long ANNOUNCE_INTERVAL = 10000L;
+  private static final long PEER_EXPIRY = 35000L;
+  private static final int CONNECT_TIMEOUT = 1000;
+  private static final int READ_TIMEOUT = 5000;
+  private static final int MAX_PEERS_PER_OBJECT = Integer.getInteger("launcher.peers.maxTries", 2).intValue();
+  private static final int MISS_LIMIT = 8;
+  private static final long MISS_BACKOFF = 30000L;
+  private static final PeerCache INSTANCE = new PeerCache();
+  private final String instanceId = UUID.randomUUID().toString();
+  private final Map<String, File> roots = new ConcurrentHashMap();
+  private final Map<String, Long> peers = new ConcurrentHashMap();
+  private final Map<String, MissCounter> misses = new ConcurrentHashMap();
+  private final ExecutorService executorService = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Peer cache #%d").build());
+  private ServerSocket serverSocket;
+  
+  public static PeerCache getInstance()
+  {
+    return INSTANCE;
+  }
+  
+  public boolean isEnabled()
+  {
+    return this.serverSocket != null;
+  }
+  
+  public void addRoot(String name, File directory)
+  {
+    this.roots.put(name, directory);
+  }
+  
+  public synchronized void start()
+  {
+    if ((!ENABLED) || (this.serverSocket != null)) {
+      return;
+    }
+    try
+    {
+      this.serverSocket = new ServerSocket(PORT);
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't start peer cache on port " + PORT, e);
+      return;
+    }
+    String staticPeers = System.getProperty("launcher.peers");
+    if (staticPeers != null) {
+      for (String peer : StringUtils.split(staticPeers, ", ")) {
+        this.peers.put(peer, Long.valueOf(Long.MAX_VALUE));
+      }
+    }
+    this.executorService.submit(new Runnable()
+    {
+      public void run()
+      {
+        PeerCache.this.serve();
+      }
+    });
+    this.executorService.submit(new Runnable()
+    {
+      public void run()
+      {
+        PeerCache.this.announce();
+      }
+    });
+    this.executorService.submit(new Runnable()
+    {
+      public void run()
+      {
+        PeerCache.this.discover();
+      }
+    });
+    LOGGER.info("Sharing " + this.roots.keySet() + " with peers on port " + this.serverSocket.getLocalPort());
+  }
+  
+  public int getPort()
+  {
+    return this.serverSocket == null ? -1 : this.serverSocket.getLocalPort();
+  }
+  
+  public List<String> getPeers()
+  {
+    List<String> result = new ArrayList();
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, Long> entry : this.peers.entrySet()) {
+      if ((((Long)entry.getValue()).longValue() > now - PEER_EXPIRY) && (!isBackingOff((String)entry.getKey(), now))) {
+        result.add(entry.getKey());
+      }
+    }
+    Collections.shuffle(result);
+    if (result.size() > MAX_PEERS_PER_OBJECT) {
+      return new ArrayList(result.subList(0, MAX_PEERS_PER_OBJECT));
+    }
+    return result;
+  }
+  
+  public void onHit(String peer)
+  {
+    this.misses.remove(peer);
+  }
+  
+  public synchronized void onMiss(String peer)
+  {
+    MissCounter counter = (MissCounter)this.misses.get(peer);
+    if (counter == null)
+    {
+      counter = new MissCounter();
+      this.misses.put(peer, counter);
+    }
+    if (counter.onMiss(System.currentTimeMillis())) {
+      LOGGER.debug("Peer " + peer + " missed " + MISS_LIMIT + " objects in a row, skipping it for " + MISS_BACKOFF / 1000L + "s");
+    }
+  }
+  
+  private boolean isBackingOff(String peer, long now)
+  {
+    MissCounter counter = (MissCounter)this.misses.get(peer);
+    return (counter != null) && (counter.isBackingOff(now));
+  }
+  
+  public HttpURLConnection openConnection(String peer, String path)
+    throws IOException
+  {
+    HttpURLConnection connection = Http.openConnection(new URL("http://" + peer + "/" + path), Proxy.NO_PROXY);
+    connection.setConnectTimeout(CONNECT_TIMEOUT);
+    connection.setReadTimeout(READ_TIMEOUT);
+    connection.setUseCaches(false);
+    return connection;
+  }
+  
+  public void onFailure(String peer)
+  {
+    Long lastSeen = (Long)this.peers.get(peer);
+    if ((lastSeen != null) && (lastSeen.longValue() != Long.MAX_VALUE))
+    {
+      LOGGER.debug("Forgetting unreachable peer " + peer);
+      this.peers.remove(peer);
+    }
+  }
+  
+  private void serve()
+  {
+    while (!this.serverSocket.isClosed()) {
+      try
+      {
+        final Socket socket = this.serverSocket.accept();
+        this.executorService.submit(new Runnable()
+        {
+          public void run()
+          {
+            PeerCache.this.handle(socket);
+          }
+        });
+      }
+      catch (IOException e)
+      {
+        LOGGER.warn("Peer cache stopped accepting connections", e);
+        return;
+      }
+    }
+  }
+  
+  private void handle(Socket socket)
+  {
+    try
+    {
+      socket.setSoTimeout(READ_TIMEOUT);
+      BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charsets.US_ASCII));
+      String[] request = StringUtils.split(StringUtils.defaultString(reader.readLine()), ' ');
+      String header;
+      do
+      {
+        header = reader.readLine();
+      } while ((header != null) && (header.length() > 0));
+      OutputStream outputStream = socket.getOutputStream();
+      File file = request.length >= 2 ? resolve(request[1]) : null;
+      ByteBuffer packed = (file == null) && (request.length >= 2) ? resolvePacked(request[1]) : null;
+      if (((file == null) && (packed == null)) || ((!request[0].equals("GET")) && (!request[0].equals("HEAD"))))
+      {
+        outputStream.write("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(Charsets.US_ASCII));
+        outputStream.flush();
+        return;
+      }
+      long length = file != null ? file.length() : packed.remaining();
+      outputStream.write(("HTTP/1.1 200 OK\r\nContent-Type: application/octet-stream\r\nContent-Length: " + length + "\r\nConnection: close\r\n\r\n").getBytes(Charsets.US_ASCII));
+      if ((request[0].equals("GET")) && (packed != null))
+      {
+        WritableByteChannel channel = Channels.newChannel(outputStream);
+        while (packed.hasRemaining()) {
+          channel.write(packed);
+        }
+      }
+      else if (request[0].equals("GET"))
+      {
+        InputStream inputStream = new FileInputStream(file);
+        try
+        {
+          IOUtils.copy(inputStream, outputStream);
+        }
+        finally
+        {
+          IOUtils.closeQuietly(inputStream);
+        }
+      }
+      outputStream.flush();
+    }
+    catch (IOException e)
+    {
+      LOGGER.debug("Couldn't serve peer " + socket.getRemoteSocketAddress(), e);
+    }
+    finally
+    {
+      IOUtils.closeQuietly(socket);
+    }
+  }
+  
+  private File resolve(String path)
+  {
+    String[] parts = StringUtils.split(path, '/');
+    if ((parts.length < 2) || (!this.roots.containsKey(parts[0]))) {
+      return null;
+    }
+    File file = (File)this.roots.get(parts[0]);
+    for (int i = 1; i < parts.length; i++)
+    {
+      if ((parts[i].equals("..")) || (parts[i].equals(".")) || (parts[i].indexOf('\\') >= 0)) {
+        return null;
+      }
+      file = new File(file, parts[i]);
+    }
+    if ((!file.isFile()) || (file.getName().matches(".*\\.(part\\d*|peer)"))) {
+      return null;
+    }
+    return file;
+  }
+  
+  private ByteBuffer resolvePacked(String path)
+    throws IOException
+  {
+    String[] parts = StringUtils.split(path, '/');
+    if ((parts.length != 3) || (!this.roots.containsKey(parts[0])) || (!parts[2].matches("[0-9a-fA-F]{40}")) || (!parts[2].startsWith(parts[1]))) {
+      return null;
+    }
+    AssetPack pack = AssetPack.open((File)this.roots.get(parts[0]), false);
+    return pack == null ? null : pack.read(parts[2]);
+  }
+  
+  private void announce()
+  {
+    DatagramSocket socket = null;
+    try
+    {
+      socket = new DatagramSocket();
+      InetAddress group = InetAddress.getByName(DISCOVERY_GROUP);
+      byte[] message = (ANNOUNCEMENT + " " + this.instanceId + " " + this.serverSocket.getLocalPort()).getBytes(Charsets.US_ASCII);
+      for (;;)
+      {
+        socket.send(new DatagramPacket(message, message.length, group, DISCOVERY_PORT));
+        Thread.sleep(ANNOUNCE_INTERVAL);
+      }
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't announce peer cache, other launchers won't discover this one", e);
+    }
+    catch (InterruptedException localInterruptedException) {}
+    finally
+    {
+      if (socket != null) {
+        socket.close();
+      }
+    }
+  }
+  
+  private void discover()
+  {
+    MulticastSocket socket = null;
+    try
+    {
+      socket = new MulticastSocket(DISCOVERY_PORT);
+      socket.joinGroup(InetAddress.getByName(DISCOVERY_GROUP));
+      byte[] buffer = new byte[256];
+      for (;;)
+      {
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        socket.receive(packet);
+        String[] message = StringUtils.split(new String(packet.getData(), 0, packet.getLength(), Charsets.US_ASCII), ' ');
+        if ((message.length == 3) && (message[0].equals(ANNOUNCEMENT)) && (!message[1].equals(this.instanceId)) && (message[2].matches("\\d{1,5}")))
+        {
+          String peer = packet.getAddress().getHostAddress() + ":" + message[2];
+          if (this.peers.put(peer, Long.valueOf(System.currentTimeMillis())) == null) {
+            LOGGER.info("Discovered peer launcher at " + peer);
+          }
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't listen for peer launchers", e);
+    }
+    finally
+    {
+      if (socket != null) {
+        socket.close();
+      }
+    }
+  }
+  
+  private static class MissCounter
+  {
+    private int count;
+    private long backoffUntil;
+    
+    public synchronized boolean onMiss(long now)
+    {
+      this.count += 1;
+      if (this.count < MISS_LIMIT) {
+        return false;
+      }
+      this.count = 0;
+      this.backoffUntil = (now + MISS_BACKOFF);
+      return true;
+    }
+    
+    public synchronized boolean isBackingOff(long now)
+    {
+      return now < this.backoffUntil;
+    }
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
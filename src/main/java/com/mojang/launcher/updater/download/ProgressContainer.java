@@ -1,10 +1,12 @@
 package com.mojang.launcher.updater.download;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class ProgressContainer
 {
-  private long total;
-  private long current;
-  private DownloadJob job;
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong current = new AtomicLong();
+  private volatile DownloadJob job;
   
   public DownloadJob getJob()
   {
@@ -15,50 +17,67 @@ public class ProgressContainer
   {
     this.job = job;
     if (job != null) {
-      job.updateProgress();
+      job.addProgress(this.current.get(), this.total.get());
     }
   }
   
   public long getTotal()
   {
-    return this.total;
+    return this.total.get();
   }
   
   public void setTotal(long total)
   {
-    this.total = total;
-    if (this.job != null) {
-      this.job.updateProgress();
-    }
+    long previous = this.total.getAndSet(total);
+    report(0L, total - previous);
   }
   
   public long getCurrent()
   {
-    return this.current;
+    return this.current.get();
   }
   
   public void setCurrent(long current)
   {
-    this.current = current;
-    if (current > this.total) {
-      this.total = current;
-    }
-    if (this.job != null) {
-      this.job.updateProgress();
-    }
+    long previous = this.current.getAndSet(current);
+    report(current - previous, raiseTotal(current));
   }
   
   public void addProgress(long amount)
   {
-    setCurrent(getCurrent() + amount);
+    long current = this.current.addAndGet(amount);
+    report(amount, raiseTotal(current));
+  }
+  
+  private long raiseTotal(long current)
+  {
+    for (;;)
+    {
+      long total = this.total.get();
+      if (current <= total) {
+        return 0L;
+      }
+      if (this.total.compareAndSet(total, current)) {
+        return current - total;
+      }
+    }
+  }
+  
+  private void report(long current, long total)
+  {
+    DownloadJob job = this.job;
+    if ((job != null) && ((current != 0L) || (total != 0L))) {
+      job.addProgress(current, total);
+    }
   }
   
   public float getProgress()
   {
-    if (this.total == 0L) {
+    long total = this.total.get();
+    if (total == 0L) {
       return 0.0F;
     }
-    return (float)this.current / (float)this.total;
+    return (float)this.current.get() / (float)total;
   }
   
   public String toString()
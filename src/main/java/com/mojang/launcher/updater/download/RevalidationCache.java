@@ -0,0 +1,340 @@
+package com.mojang.launcher.updater.download;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.mojang.launcher.Http;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class RevalidationCache
+{
+  private static final Logger LOGGER;
+  private static final long TTL = Long.getLong("launcher.revalidation.ttl", 86400000L).longValue();
+  private static final int MAX_THREADS = 8;
+  private static final RevalidationCache INSTANCE = new RevalidationCache();
+  private final Gson gson = new Gson();
+  private final Map<String, Entry> entries = new ConcurrentHashMap();
+  private File file;
+  private volatile boolean dirty;
+  
+  public static RevalidationCache getInstance()
+  {
+    return INSTANCE;
+  }
+  
+  public synchronized void load(File file)
+  {
+    this.file = file;
+    this.entries.clear();
+    this.dirty = false;
+    if (!file.isFile()) {
+      return;
+    }
+    try
+    {
+      Map<String, Entry> loaded = (Map)this.gson.fromJson(FileUtils.readFileToString(file, Charsets.UTF_8), new TypeToken<Map<String, Entry>>() {}.getType());
+      if (loaded != null) {
+        this.entries.putAll(loaded);
+      }
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't read revalidation cache " + file + ", files will be revalidated", e);
+    }
+    catch (JsonParseException e)
+    {
+      LOGGER.warn("Couldn't parse revalidation cache " + file + ", files will be revalidated", e);
+    }
+  }
+  
+  public synchronized void save()
+  {
+    if ((this.file == null) || (!this.dirty)) {
+      return;
+    }
+    for (Iterator<String> iterator = this.entries.keySet().iterator(); iterator.hasNext();) {
+      if (!new File((String)iterator.next()).isFile()) {
+        iterator.remove();
+      }
+    }
+    File temp = new File(this.file.getPath() + ".tmp");
+    try
+    {
+      FileUtils.writeStringToFile(temp, this.gson.toJson(this.entries), Charsets.UTF_8);
+      if ((this.file.isFile()) && (!this.file.delete())) {
+        throw new IOException("Couldn't replace " + this.file);
+      }
+      if (!temp.renameTo(this.file)) {
+        throw new IOException("Couldn't rename " + temp + " to " + this.file);
+      }
+      this.dirty = false;
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't save revalidation cache " + this.file, e);
+      FileUtils.deleteQuietly(temp);
+    }
+  }
+  
+  public Set<Downloadable> filter(Collection<? extends Downloadable> downloadables)
+  {
+    Set<Downloadable> result = new HashSet();
+    List<Callable<Downloadable>> tasks = new ArrayList();
+    final AtomicInteger requests = new AtomicInteger();
+    for (final Downloadable downloadable : downloadables) {
+      if ((downloadable instanceof ChecksummedDownloadable) && (!downloadable.shouldIgnoreLocal())) {
+        tasks.add(new Callable()
+        {
+          public Downloadable call()
+          {
+            return RevalidationCache.this.isUpToDate(downloadable, requests) ? null : downloadable;
+          }
+        });
+      } else {
+        result.add(downloadable);
+      }
+    }
+    if (tasks.isEmpty()) {
+      return result;
+    }
+    long start = System.nanoTime();
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.min(MAX_THREADS, tasks.size()), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Revalidation #%d").build());
+    try
+    {
+      for (Future<Downloadable> future : executorService.invokeAll(tasks)) {
+        try
+        {
+          Downloadable downloadable = (Downloadable)future.get();
+          if (downloadable != null) {
+            result.add(downloadable);
+          }
+        }
+        catch (ExecutionException e)
+        {
+          LOGGER.warn("Unexpected exception revalidating files", e.getCause());
+        }
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Interrupted while revalidating files, downloading all of them");
+      return new HashSet(downloadables);
+    }
+    finally
+    {
+      executorService.shutdownNow();
+    }
+    int upToDate = downloadables.size() - result.size();
+    LOGGER.info("Revalidated " + tasks.size() + " file(s) with " + requests.get() + " request(s) in " + (System.nanoTime() - start) / 1000000L + " ms; " + upToDate + " up to date, " + result.size() + " to download");
+    save();
+    return result;
+  }
+  
+  public String fetch(URL url, Proxy proxy, File file)
+    throws IOException
+  {
+    String key = file.getAbsolutePath();
+    Entry entry = (Entry)this.entries.get(key);
+    String localHash = file.isFile() ? Downloadable.getDigest(file, "SHA-1", 40) : null;
+    boolean matches = (entry != null) && (localHash != null) && (localHash.equalsIgnoreCase(entry.sha1));
+    HttpURLConnection connection = Http.openConnection(url, proxy);
+    connection.setConnectTimeout(15000);
+    connection.setReadTimeout(60000);
+    if (matches)
+    {
+      if (entry.etag != null) {
+        connection.setRequestProperty("If-None-Match", entry.etag);
+      }
+      if (entry.lastModified != null) {
+        connection.setRequestProperty("If-Modified-Since", entry.lastModified);
+      }
+    }
+    InputStream inputStream;
+    try
+    {
+      if (connection.getResponseCode() == 304)
+      {
+        if (!matches) {
+          throw new IOException("Server returned 304 for unconditional request to " + url);
+        }
+        Http.release(connection);
+        entry.validated = System.currentTimeMillis();
+        this.dirty = true;
+        save();
+        LOGGER.debug(url + " is not modified, using " + file);
+        return localHash;
+      }
+      inputStream = connection.getInputStream();
+    }
+    catch (IOException e)
+    {
+      Http.release(connection);
+      throw e;
+    }
+    File temp = new File(file.getPath() + ".tmp");
+    MessageDigest digest = DigestUtils.getSha1Digest();
+    try
+    {
+      FileUtils.forceMkdir(file.getParentFile());
+      FileChannel channel = DownloadSink.open(temp, false);
+      try
+      {
+        DownloadSink.transfer(inputStream, channel, digest, -1L);
+      }
+      finally
+      {
+        IOUtils.closeQuietly(channel);
+      }
+    }
+    finally
+    {
+      IOUtils.closeQuietly(inputStream);
+    }
+    if ((file.isFile()) && (!file.delete()))
+    {
+      FileUtils.deleteQuietly(temp);
+      throw new IOException("Couldn't replace " + file);
+    }
+    if (!temp.renameTo(file)) {
+      throw new IOException("Couldn't rename " + temp + " to " + file);
+    }
+    String hash = Hex.encodeHexString(digest.digest());
+    VerificationIndex.getInstance().putWrittenDigest(file, "SHA-1", hash);
+    this.entries.put(key, new Entry(hash, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"), System.currentTimeMillis()));
+    this.dirty = true;
+    save();
+    return hash;
+  }
+  
+  private boolean isUpToDate(Downloadable downloadable, AtomicInteger requests)
+  {
+    File target = downloadable.getTarget();
+    if (!target.isFile()) {
+      return false;
+    }
+    String localHash = Downloadable.getDigest(target, "SHA-1", 40);
+    if (localHash == null) {
+      return false;
+    }
+    String key = target.getAbsolutePath();
+    Entry entry = (Entry)this.entries.get(key);
+    boolean matches = (entry != null) && (localHash.equalsIgnoreCase(entry.sha1));
+    long now = System.currentTimeMillis();
+    if ((matches) && (entry.validated + TTL > now)) {
+      return true;
+    }
+    File checksumFile = new File(target.getAbsolutePath() + ".sha");
+    HttpURLConnection connection = null;
+    try
+    {
+      requests.incrementAndGet();
+      connection = Http.openConnection(new URL(downloadable.getUrl().toString() + ".sha1"), downloadable.getProxy());
+      connection.setConnectTimeout(5000);
+      connection.setReadTimeout(15000);
+      if (matches)
+      {
+        if (entry.etag != null) {
+          connection.setRequestProperty("If-None-Match", entry.etag);
+        }
+        if (entry.lastModified != null) {
+          connection.setRequestProperty("If-Modified-Since", entry.lastModified);
+        }
+      }
+      int status = connection.getResponseCode();
+      if (status == 304)
+      {
+        Http.release(connection);
+        entry.validated = now;
+        this.dirty = true;
+        return true;
+      }
+      if (status / 100 != 2)
+      {
+        Http.release(connection);
+        return false;
+      }
+      InputStream inputStream = connection.getInputStream();
+      String checksum;
+      try
+      {
+        checksum = StringUtils.trimToEmpty(IOUtils.toString(inputStream, Charsets.UTF_8));
+      }
+      finally
+      {
+        IOUtils.closeQuietly(inputStream);
+      }
+      if (checksum.length() == 0) {
+        return false;
+      }
+      FileUtils.writeStringToFile(checksumFile, checksum);
+      Entry updated = new Entry(checksum, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"), now);
+      this.entries.put(key, updated);
+      this.dirty = true;
+      return checksum.equalsIgnoreCase(localHash);
+    }
+    catch (IOException e)
+    {
+      if (connection != null) {
+        Http.release(connection);
+      }
+      LOGGER.debug("Couldn't revalidate " + downloadable.getUrl() + ", falling back to local checksum", e);
+      try
+      {
+        return (checksumFile.isFile()) && (localHash.equalsIgnoreCase(FileUtils.readFileToString(checksumFile).trim()));
+      }
+      catch (IOException ignored) {}
+    }
+    return false;
+  }
+  
+  private static class Entry
+  {
+    private String sha1;
+    private String etag;
+    private String lastModified;
+    private long validated;
+    
+    public Entry(String sha1, String etag, String lastModified, long validated)
+    {
+      this.sha1 = sha1;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.validated = validated;
+    }
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
@@ -0,0 +1,93 @@
+package com.mojang.launcher.updater.download;
+
+import java.util.Comparator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public enum SchedulingPolicy
+{
+  FIFO("fifo", false, 1),  LARGEST_FIRST("largest_first", true, 16);
+  
+  private static final Logger LOGGER;
+  private static final long ASSUMED_AVERAGE_FILE_SIZE = 5242880L;
+  private static final Comparator<Downloadable> LARGEST_FIRST_ORDER = new Comparator<Downloadable>()
+  {
+    public int compare(Downloadable a, Downloadable b)
+    {
+      long sizeA = SchedulingPolicy.getScheduledSize(a);
+      long sizeB = SchedulingPolicy.getScheduledSize(b);
+      return sizeA > sizeB ? -1 : sizeA < sizeB ? 1 : 0;
+    }
+  };
+  private final String name;
+  private final boolean ordered;
+  private final int batchSize;
+  
+  private SchedulingPolicy(String name, boolean ordered, int batchSize)
+  {
+    this.name = name;
+    this.ordered = ordered;
+    this.batchSize = batchSize;
+  }
+  
+  public String getName()
+  {
+    return this.name;
+  }
+  
+  public int getBatchSize()
+  {
+    return this.batchSize;
+  }
+  
+  public Queue<Downloadable> createQueue()
+  {
+    if (this.ordered) {
+      return new PriorityBlockingQueue(11, LARGEST_FIRST_ORDER);
+    }
+    return new ConcurrentLinkedQueue();
+  }
+  
+  public String toString()
+  {
+    return this.name;
+  }
+  
+  public static long getScheduledSize(Downloadable downloadable)
+  {
+    long size = downloadable.getExpectedSize();
+    return size > 0L ? size : ASSUMED_AVERAGE_FILE_SIZE;
+  }
+  
+  public static SchedulingPolicy byName(String name)
+  {
+    for (SchedulingPolicy policy : values()) {
+      if (policy.getName().equalsIgnoreCase(name)) {
+        return policy;
+      }
+    }
+    return null;
+  }
+  
+  public static SchedulingPolicy getDefault()
+  {
+    String name = System.getProperty("launcher.download.scheduling");
+    if (name == null) {
+      return LARGEST_FIRST;
+    }
+    SchedulingPolicy policy = byName(name);
+    if (policy == null)
+    {
+      LOGGER.warn("Unknown download scheduling policy '" + name + "', using " + LARGEST_FIRST);
+      return LARGEST_FIRST;
+    }
+    return policy;
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
@@ -0,0 +1,188 @@
+package com.mojang.launcher.updater.download;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class VerificationIndex
+{
+  private static final Logger LOGGER;
+  private static final long MODIFIED_TIME_GRANULARITY = 2000L;
+  private static final VerificationIndex INSTANCE = new VerificationIndex();
+  private final Gson gson = new Gson();
+  private final Map<String, Entry> entries = new ConcurrentHashMap();
+  private File file;
+  private volatile boolean dirty;
+  
+  public static VerificationIndex getInstance()
+  {
+    return INSTANCE;
+  }
+  
+  public synchronized void load(File file)
+  {
+    this.file = file;
+    this.entries.clear();
+    this.dirty = false;
+    if (!file.isFile()) {
+      return;
+    }
+    try
+    {
+      Map<String, Entry> loaded = (Map)this.gson.fromJson(FileUtils.readFileToString(file, Charsets.UTF_8), new TypeToken<Map<String, Entry>>() {}.getType());
+      if (loaded != null) {
+        this.entries.putAll(loaded);
+      }
+      LOGGER.info("Loaded " + this.entries.size() + " verified file(s) from " + file);
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't read verification index " + file + ", files will be hashed again", e);
+    }
+    catch (JsonParseException e)
+    {
+      LOGGER.warn("Couldn't parse verification index " + file + ", files will be hashed again", e);
+    }
+  }
+  
+  public synchronized void save()
+  {
+    if ((this.file == null) || (!this.dirty)) {
+      return;
+    }
+    for (Iterator<String> iterator = this.entries.keySet().iterator(); iterator.hasNext();) {
+      if (!new File((String)iterator.next()).isFile()) {
+        iterator.remove();
+      }
+    }
+    File temp = new File(this.file.getPath() + ".tmp");
+    try
+    {
+      FileUtils.writeStringToFile(temp, this.gson.toJson(this.entries), Charsets.UTF_8);
+      if ((this.file.isFile()) && (!this.file.delete())) {
+        throw new IOException("Couldn't replace " + this.file);
+      }
+      if (!temp.renameTo(this.file)) {
+        throw new IOException("Couldn't rename " + temp + " to " + this.file);
+      }
+      this.dirty = false;
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't save verification index " + this.file, e);
+      FileUtils.deleteQuietly(temp);
+    }
+  }
+  
+  public String getDigest(File file, String algorithm)
+  {
+    Entry entry = (Entry)this.entries.get(file.getAbsolutePath());
+    if ((entry == null) || (!entry.isTrusted(file))) {
+      return null;
+    }
+    return entry.getDigest(algorithm);
+  }
+  
+  public void putDigest(File file, String algorithm, String digest)
+  {
+    putDigest(file, algorithm, digest, false);
+  }
+  
+  public void putWrittenDigest(File file, String algorithm, String digest)
+  {
+    putDigest(file, algorithm, digest, true);
+  }
+  
+  private void putDigest(File file, String algorithm, String digest, boolean written)
+  {
+    if ((digest == null) || (!file.isFile())) {
+      return;
+    }
+    String key = file.getAbsolutePath();
+    long size = file.length();
+    long modified = file.lastModified();
+    Entry previous = (Entry)this.entries.get(key);
+    long verified = System.currentTimeMillis();
+    if (written) {
+      verified = Math.max(verified, modified + MODIFIED_TIME_GRANULARITY + 1L);
+    }
+    Entry entry = new Entry(size, modified, verified);
+    if ((previous != null) && (previous.size == size) && (previous.modified == modified))
+    {
+      entry.sha1 = previous.sha1;
+      entry.md5 = previous.md5;
+    }
+    entry.setDigest(algorithm, digest);
+    this.entries.put(key, entry);
+    this.dirty = true;
+  }
+  
+  public void invalidate(File file)
+  {
+    if (this.entries.remove(file.getAbsolutePath()) != null) {
+      this.dirty = true;
+    }
+  }
+  
+  private static boolean isSha1(String algorithm)
+  {
+    return (algorithm.equalsIgnoreCase("SHA")) || (algorithm.equalsIgnoreCase("SHA-1")) || (algorithm.equalsIgnoreCase("SHA1"));
+  }
+  
+  private static class Entry
+  {
+    private long size;
+    private long modified;
+    private long verified;
+    private String sha1;
+    private String md5;
+    
+    public Entry(long size, long modified, long verified)
+    {
+      this.size = size;
+      this.modified = modified;
+      this.verified = verified;
+    }
+    
+    public boolean isTrusted(File file)
+    {
+      if ((this.modified + MODIFIED_TIME_GRANULARITY >= this.verified) || (file.length() != this.size)) {
+        return false;
+      }
+      return file.lastModified() == this.modified;
+    }
+    
+    public String getDigest(String algorithm)
+    {
+      if (VerificationIndex.isSha1(algorithm)) {
+        return this.sha1;
+      }
+      if (algorithm.equalsIgnoreCase("MD5")) {
+        return this.md5;
+      }
+      return null;
+    }
+    
+    public void setDigest(String algorithm, String digest)
+    {
+      if (VerificationIndex.isSha1(algorithm)) {
+        this.sha1 = digest;
+      } else if (algorithm.equalsIgnoreCase("MD5")) {
+        this.md5 = digest;
+      }
+    }
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
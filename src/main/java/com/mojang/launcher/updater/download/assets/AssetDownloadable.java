@@ -1,17 +1,21 @@
 package com.mojang.launcher.updater.download.assets;
 
+import com.mojang.launcher.Http;
+import com.mojang.launcher.updater.download.DownloadSink;
 import com.mojang.launcher.updater.download.Downloadable;
-import com.mojang.launcher.updater.download.MonitoringInputStream;
+import com.mojang.launcher.updater.download.HttpStatusException;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.Proxy;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
 import java.util.zip.GZIPInputStream;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
@@ -44,6 +48,24 @@ public class AssetDownloadable
   
   public String download()
     throws IOException
+  {
+    AssetPack pack = AssetPack.forDirectory(this.destination);
+    if ((pack != null) && (pack.getSize(this.asset.getHash()) == this.asset.getSize()))
+    {
+      this.numAttempts += 1;
+      return "Have asset in pack";
+    }
+    String result = downloadLoose();
+    if ((pack != null) && (pack.put(this.asset.getHash(), getTarget())))
+    {
+      FileUtils.deleteQuietly(getTarget());
+      result = result + "; packed";
+    }
+    return result;
+  }
+  
+  private String downloadLoose()
+    throws IOException
   {
     this.status = Status.DOWNLOADING;
     
@@ -51,7 +73,7 @@ public class AssetDownloadable
     File localAsset = getTarget();
     File localCompressed = this.asset.hasCompressedAlternative() ? new File(this.destination, createPathFromHash(this.asset.getCompressedHash())) : null;
     URL remoteAsset = getUrl();
-    URL remoteCompressed = this.asset.hasCompressedAlternative() ? new URL(this.urlBase + createPathFromHash(this.asset.getCompressedHash())) : null;
+    URL remoteCompressed = this.asset.hasCompressedAlternative() ? getMirrorUrl(new URL(this.urlBase + createPathFromHash(this.asset.getCompressedHash()))) : null;
     
     ensureFileWritable(localAsset);
     if (localCompressed != null) {
@@ -75,41 +97,49 @@ public class AssetDownloadable
       LOGGER.warn("Had local compressed but it was the wrong hash... expected {} but had {}", this.asset.getCompressedHash(), localCompressedHash );
       FileUtils.deleteQuietly(localCompressed);
     }
+    String peer = downloadFromPeer(remoteAsset, localAsset, this.asset.getHash());
+    if (peer != null) {
+      return "Downloaded asset from peer " + peer + " and hash matched";
+    }
     if ((remoteCompressed != null) && (localCompressed != null))
     {
-      HttpURLConnection connection = makeConnection(remoteCompressed);
+      HttpURLConnection connection = makeResumableConnection(remoteCompressed, localCompressed);
       int status = connection.getResponseCode();
       if (status / 100 == 2)
       {
         updateExpectedSize(connection);
         
-        InputStream inputStream = new MonitoringInputStream(connection.getInputStream(), getMonitor());
-        FileOutputStream outputStream = new FileOutputStream(localCompressed);
-        String hash = copyAndDigest(inputStream, outputStream, "SHA", 40);
-        if (hash.equalsIgnoreCase(this.asset.getCompressedHash())) {
-          return decompressAsset(localAsset, localCompressed);
+        String[] hashes = downloadAndInflate(connection, localCompressed, localAsset);
+        if (!hashes[0].equalsIgnoreCase(this.asset.getCompressedHash()))
+        {
+          FileUtils.deleteQuietly(localCompressed);
+          FileUtils.deleteQuietly(localAsset);
+          throw new RuntimeException(String.format("Hash did not match downloaded compressed asset (Expected %s, downloaded %s)", this.asset.getCompressedHash(), hashes[0] ));
+        }
+        if (hashes[1].equalsIgnoreCase(this.asset.getHash())) {
+          return "Downloaded compressed asset, unpacked while downloading and hash matched";
         }
-        FileUtils.deleteQuietly(localCompressed);
-        throw new RuntimeException(String.format("Hash did not match downloaded compressed asset (Expected %s, downloaded %s)", this.asset.getCompressedHash(), hash ));
+        FileUtils.deleteQuietly(localAsset);
+        throw new RuntimeException("Downloaded compressed asset but unpacked hash did not match (expected " + this.asset.getHash() + " but had " + hashes[1] + ")");
       }
-      throw new RuntimeException("Server responded with " + status);
+      Http.release(connection);
+      throw HttpStatusException.create(connection, status);
     }
-    HttpURLConnection connection = makeConnection(remoteAsset);
+    HttpURLConnection connection = makeResumableConnection(remoteAsset, localAsset);
     int status = connection.getResponseCode();
     if (status / 100 == 2)
     {
       updateExpectedSize(connection);
       
-      InputStream inputStream = new MonitoringInputStream(connection.getInputStream(), getMonitor());
-      FileOutputStream outputStream = new FileOutputStream(localAsset);
-      String hash = copyAndDigest(inputStream, outputStream, "SHA", 40);
+      String hash = downloadToTarget(connection, localAsset, "SHA", 40);
       if (hash.equalsIgnoreCase(this.asset.getHash())) {
         return "Downloaded asset and hash matched successfully";
       }
       FileUtils.deleteQuietly(localAsset);
       throw new RuntimeException(String.format("Hash did not match downloaded asset (Expected %s, downloaded %s)",  this.asset.getHash(), hash ));
     }
-    throw new RuntimeException("Server responded with " + status);
+    Http.release(connection);
+    throw HttpStatusException.create(connection, status);
   }
   
   public String getStatus()
@@ -121,18 +151,19 @@ public class AssetDownloadable
     throws IOException
   {
     this.status = Status.EXTRACTING;
-    OutputStream outputStream = FileUtils.openOutputStream(localAsset);
-    InputStream inputStream = new GZIPInputStream(FileUtils.openInputStream(localCompressed));
-    String hash;
+    MessageDigest digest = DigestUtils.getSha1Digest();
+    FileChannel channel = DownloadSink.open(localAsset, false);
+    InputStream inputStream = new GZIPInputStream(FileUtils.openInputStream(localCompressed), 65536);
     try
     {
-      hash = copyAndDigest(inputStream, outputStream, "SHA", 40);
+      DownloadSink.transfer(inputStream, channel, digest, -1L);
     }
     finally
     {
-      IOUtils.closeQuietly(outputStream);
+      IOUtils.closeQuietly(channel);
       IOUtils.closeQuietly(inputStream);
     }
+    String hash = Hex.encodeHexString(digest.digest());
     this.status = Status.DOWNLOADING;
     if (hash.equalsIgnoreCase(this.asset.getHash())) {
       return "Had local compressed asset, unpacked successfully and hash matched";
@@ -1,31 +1,160 @@
 package com.mojang.launcher.updater.download.assets;
 
 import com.google.common.collect.Maps;
-import java.util.LinkedHashMap;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
 
 public class AssetIndex
 {
   public static final String DEFAULT_ASSET_NAME = "legacy";
-  private Map<String, AssetObject> objects;
+  private static final int INITIAL_CAPACITY = 256;
+  private String[] names = new String[INITIAL_CAPACITY];
+  private byte[][] hashes = new byte[INITIAL_CAPACITY][];
+  private long[] sizes = new long[INITIAL_CAPACITY];
+  private byte[][] compressedHashes = new byte[INITIAL_CAPACITY][];
+  private long[] compressedSizes = new long[INITIAL_CAPACITY];
+  private final BitSet reconstruct = new BitSet();
+  private int count;
   private boolean virtual;
+  private final Map<String, AssetObject> fileMap = new FileMap();
+  private volatile Map<String, Integer> slots;
+  private volatile String[] hexHashes;
+  private volatile String[] hexCompressedHashes;
   
-  public AssetIndex()
+  public static AssetIndex read(Reader reader)
+    throws IOException
   {
-    this.objects = new LinkedHashMap();
+    AssetIndex index = new AssetIndex();
+    Map<String, byte[]> interned = new HashMap();
+    JsonReader json = new JsonReader(reader);
+    json.beginObject();
+    while (json.hasNext())
+    {
+      String field = json.nextName();
+      if ((field.equals("objects")) && (json.peek() == JsonToken.BEGIN_OBJECT))
+      {
+        json.beginObject();
+        while (json.hasNext()) {
+          index.readObject(json.nextName(), json, interned);
+        }
+        json.endObject();
+      }
+      else if ((field.equals("virtual")) && (json.peek() == JsonToken.BOOLEAN))
+      {
+        index.virtual = json.nextBoolean();
+      }
+      else
+      {
+        json.skipValue();
+      }
+    }
+    json.endObject();
+    index.trim();
+    return index;
+  }
+  
+  private void readObject(String name, JsonReader json, Map<String, byte[]> interned)
+    throws IOException
+  {
+    if (json.peek() == JsonToken.NULL)
+    {
+      json.nextNull();
+      return;
+    }
+    if (this.count == this.names.length) {
+      resize(this.count * 2);
+    }
+    int index = this.count;
+    json.beginObject();
+    while (json.hasNext())
+    {
+      String field = json.nextName();
+      if (json.peek() == JsonToken.NULL) {
+        json.nextNull();
+      } else if (field.equals("hash")) {
+        this.hashes[index] = intern(json.nextString(), interned);
+      } else if (field.equals("size")) {
+        this.sizes[index] = json.nextLong();
+      } else if (field.equals("reconstruct")) {
+        this.reconstruct.set(index, json.nextBoolean());
+      } else if (field.equals("compressedHash")) {
+        this.compressedHashes[index] = intern(json.nextString(), interned);
+      } else if (field.equals("compressedSize")) {
+        this.compressedSizes[index] = json.nextLong();
+      } else {
+        json.skipValue();
+      }
+    }
+    json.endObject();
+    this.names[index] = name;
+    this.count += 1;
+  }
+  
+  private static byte[] intern(String hash, Map<String, byte[]> interned)
+    throws IOException
+  {
+    byte[] result = (byte[])interned.get(hash);
+    if (result == null)
+    {
+      try
+      {
+        result = Hex.decodeHex(hash.toCharArray());
+      }
+      catch (DecoderException e)
+      {
+        throw new IOException("Invalid asset hash '" + hash + "'", e);
+      }
+      interned.put(hash, result);
+    }
+    return result;
+  }
+  
+  private void resize(int capacity)
+  {
+    this.names = ((String[])Arrays.copyOf(this.names, capacity));
+    this.hashes = ((byte[][])Arrays.copyOf(this.hashes, capacity));
+    this.sizes = Arrays.copyOf(this.sizes, capacity);
+    this.compressedHashes = ((byte[][])Arrays.copyOf(this.compressedHashes, capacity));
+    this.compressedSizes = Arrays.copyOf(this.compressedSizes, capacity);
+  }
+  
+  private void trim()
+  {
+    if (this.count < this.names.length) {
+      resize(this.count);
+    }
+  }
+  
+  public int size()
+  {
+    return this.count;
   }
   
   public Map<String, AssetObject> getFileMap()
   {
-    return this.objects;
+    return this.fileMap;
   }
   
   public Map<AssetObject, String> getUniqueObjects()
   {
     Map<AssetObject, String> result = Maps.newHashMap();
-    for (Map.Entry<String, AssetObject> objectEntry : this.objects.entrySet()) {
-      result.put(objectEntry.getValue(), objectEntry.getKey());
+    for (int i = 0; i < this.count; i++) {
+      result.put(new AssetObject(i), this.names[i]);
     }
     return result;
   }
@@ -35,44 +164,159 @@ public class AssetIndex
     return this.virtual;
   }
   
+  private int indexOf(Object name)
+  {
+    Map<String, Integer> slots = this.slots;
+    if (slots == null)
+    {
+      slots = new HashMap(this.count * 4 / 3 + 1);
+      for (int i = this.count - 1; i >= 0; i--) {
+        slots.put(this.names[i], Integer.valueOf(i));
+      }
+      this.slots = slots;
+    }
+    Integer slot = (Integer)slots.get(name);
+    return slot == null ? -1 : slot.intValue();
+  }
+  
+  private String getHexHash(int index)
+  {
+    String[] hex = this.hexHashes;
+    if (hex == null)
+    {
+      hex = encode(this.hashes);
+      this.hexHashes = hex;
+    }
+    return hex[index];
+  }
+  
+  private String getHexCompressedHash(int index)
+  {
+    String[] hex = this.hexCompressedHashes;
+    if (hex == null)
+    {
+      hex = encode(this.compressedHashes);
+      this.hexCompressedHashes = hex;
+    }
+    return hex[index];
+  }
+  
+  private String[] encode(byte[][] hashes)
+  {
+    String[] result = new String[this.count];
+    Map<byte[], String> encoded = new IdentityHashMap();
+    for (int i = 0; i < this.count; i++) {
+      if (hashes[i] != null)
+      {
+        String hex = (String)encoded.get(hashes[i]);
+        if (hex == null)
+        {
+          hex = Hex.encodeHexString(hashes[i]);
+          encoded.put(hashes[i], hex);
+        }
+        result[i] = hex;
+      }
+    }
+    return result;
+  }
+  
+  private class FileMap
+    extends AbstractMap<String, AssetObject>
+  {
+    private FileMap() {}
+    
+    public int size()
+    {
+      return AssetIndex.this.count;
+    }
+    
+    public boolean containsKey(Object key)
+    {
+      return AssetIndex.this.indexOf(key) >= 0;
+    }
+    
+    public AssetObject get(Object key)
+    {
+      int index = AssetIndex.this.indexOf(key);
+      return index < 0 ? null : new AssetObject(index);
+    }
+    
+    public Set<Map.Entry<String, AssetObject>> entrySet()
+    {
+      return new AbstractSet<Map.Entry<String, AssetObject>>()
+      {
+        public int size()
+        {
+          return AssetIndex.this.count;
+        }
+        
+        public Iterator<Map.Entry<String, AssetObject>> iterator()
+        {
+          return new Iterator<Map.Entry<String, AssetObject>>()
+          {
+            private int next;
+            
+            public boolean hasNext()
+            {
+              return this.next < AssetIndex.this.count;
+            }
+            
+            public Map.Entry<String, AssetObject> next()
+            {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              int index = this.next++;
+              return new AbstractMap.SimpleImmutableEntry(AssetIndex.this.names[index], new AssetObject(index));
+            }
+            
+            public void remove()
+            {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+      };
+    }
+  }
+  
   public class AssetObject
   {
-    private String hash;
-    private long size;
-    private boolean reconstruct;
-    private String compressedHash;
-    private long compressedSize;
+    private final int index;
     
-    public AssetObject() {}
+    private AssetObject(int index)
+    {
+      this.index = index;
+    }
     
     public String getHash()
     {
-      return this.hash;
+      return AssetIndex.this.getHexHash(this.index);
     }
     
     public long getSize()
     {
-      return this.size;
+      return AssetIndex.this.sizes[this.index];
     }
     
     public boolean shouldReconstruct()
     {
-      return this.reconstruct;
+      return AssetIndex.this.reconstruct.get(this.index);
     }
     
     public boolean hasCompressedAlternative()
     {
-      return this.compressedHash != null;
+      return AssetIndex.this.compressedHashes[this.index] != null;
     }
     
     public String getCompressedHash()
     {
-      return this.compressedHash;
+      return AssetIndex.this.getHexCompressedHash(this.index);
     }
     
     public long getCompressedSize()
     {
-      return this.compressedSize;
+      return AssetIndex.this.compressedSizes[this.index];
     }
     
     public boolean equals(Object o)
@@ -84,19 +328,19 @@ public class AssetIndex
         return false;
       }
       AssetObject that = (AssetObject)o;
-      if (this.compressedSize != that.compressedSize) {
+      if (getCompressedSize() != that.getCompressedSize()) {
         return false;
       }
-      if (this.reconstruct != that.reconstruct) {
+      if (shouldReconstruct() != that.shouldReconstruct()) {
         return false;
       }
-      if (this.size != that.size) {
+      if (getSize() != that.getSize()) {
         return false;
       }
-      if (this.compressedHash != null ? !this.compressedHash.equals(that.compressedHash) : that.compressedHash != null) {
+      if (!Arrays.equals(AssetIndex.this.compressedHashes[this.index], that.getIndex().compressedHashes[that.index])) {
         return false;
       }
-      if (this.hash != null ? !this.hash.equals(that.hash) : that.hash != null) {
+      if (!Arrays.equals(AssetIndex.this.hashes[this.index], that.getIndex().hashes[that.index])) {
         return false;
       }
       return true;
@@ -104,12 +348,19 @@ public class AssetIndex
     
     public int hashCode()
     {
-      int result = this.hash != null ? this.hash.hashCode() : 0;
-      result = 31 * result + (int)(this.size ^ this.size >>> 32);
-      result = 31 * result + (this.reconstruct ? 1 : 0);
-      result = 31 * result + (this.compressedHash != null ? this.compressedHash.hashCode() : 0);
-      result = 31 * result + (int)(this.compressedSize ^ this.compressedSize >>> 32);
+      long size = getSize();
+      long compressedSize = getCompressedSize();
+      int result = Arrays.hashCode(AssetIndex.this.hashes[this.index]);
+      result = 31 * result + (int)(size ^ size >>> 32);
+      result = 31 * result + (shouldReconstruct() ? 1 : 0);
+      result = 31 * result + Arrays.hashCode(AssetIndex.this.compressedHashes[this.index]);
+      result = 31 * result + (int)(compressedSize ^ compressedSize >>> 32);
       return result;
     }
+    
+    private AssetIndex getIndex()
+    {
+      return AssetIndex.this;
+    }
   }
-}
\ No newline at end of file
+}
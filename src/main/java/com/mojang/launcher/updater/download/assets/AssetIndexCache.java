@@ -0,0 +1,83 @@
+package com.mojang.launcher.updater.download.assets;
+
+import com.mojang.launcher.updater.download.Downloadable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class AssetIndexCache
+{
+  private static final Logger LOGGER;
+  private static final AssetIndexCache INSTANCE = new AssetIndexCache();
+  private final Map<String, Entry> entries = new HashMap();
+  
+  public static AssetIndexCache getInstance()
+  {
+    return INSTANCE;
+  }
+  
+  public AssetIndex getIndex(File indexFile)
+    throws IOException
+  {
+    return getIndex(indexFile, Downloadable.getDigest(indexFile, "SHA-1", 40));
+  }
+  
+  public synchronized AssetIndex getIndex(File indexFile, String hash)
+    throws IOException
+  {
+    if (hash == null) {
+      return read(indexFile);
+    }
+    String name = StringUtils.removeEnd(indexFile.getName(), ".json");
+    Entry entry = (Entry)this.entries.get(name);
+    AssetIndex index = (entry != null) && (entry.hash.equalsIgnoreCase(hash)) ? (AssetIndex)entry.index.get() : null;
+    if (index == null)
+    {
+      long start = System.nanoTime();
+      index = read(indexFile);
+      this.entries.put(name, new Entry(hash, index));
+      LOGGER.debug("Parsed asset index " + name + " with " + index.size() + " object(s) in " + (System.nanoTime() - start) / 1000000L + " ms");
+    }
+    return index;
+  }
+  
+  private static AssetIndex read(File indexFile)
+    throws IOException
+  {
+    Reader reader = new InputStreamReader(new FileInputStream(indexFile), Charsets.UTF_8);
+    try
+    {
+      return AssetIndex.read(reader);
+    }
+    finally
+    {
+      IOUtils.closeQuietly(reader);
+    }
+  }
+  
+  private static class Entry
+  {
+    private final String hash;
+    private final SoftReference<AssetIndex> index;
+    
+    public Entry(String hash, AssetIndex index)
+    {
+      this.hash = hash;
+      this.index = new SoftReference(index);
+    }
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
@@ -0,0 +1,71 @@
+package com.mojang.launcher.updater.download.assets;
+
+import com.mojang.launcher.updater.download.Downloadable;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.Proxy;
+import org.apache.commons.io.FileUtils;
+
+public class AssetMigrationDownloadable
+  extends Downloadable
+{
+  private final File source;
+  private final File objectsDirectory;
+  private final AssetMigrationJournal journal;
+  
+  public AssetMigrationDownloadable(File source, File objectsDirectory, AssetMigrationJournal journal)
+    throws MalformedURLException
+  {
+    super(Proxy.NO_PROXY, source.toURI().toURL(), source, false);
+    this.source = source;
+    this.objectsDirectory = objectsDirectory;
+    this.journal = journal;
+    setExpectedSize(source.length());
+  }
+  
+  public String download()
+    throws IOException
+  {
+    this.numAttempts += 1;
+    if (!this.source.isFile()) {
+      return "Already migrated";
+    }
+    String hash = this.journal.getHash(this.source);
+    if (hash == null)
+    {
+      hash = getDigest(this.source, "SHA-1", 40);
+      if (hash == null) {
+        throw new IOException("Couldn't hash " + this.source);
+      }
+      this.journal.record(this.source, hash);
+    }
+    File destination = new File(this.objectsDirectory, hash.substring(0, 2) + "/" + hash);
+    String result;
+    if (destination.isFile())
+    {
+      FileUtils.forceDelete(this.source);
+      result = "Already had " + destination;
+    }
+    else
+    {
+      FileUtils.forceMkdir(destination.getParentFile());
+      if (this.source.renameTo(destination))
+      {
+        result = "Moved into " + destination;
+      }
+      else
+      {
+        FileUtils.copyFile(this.source, destination);
+        FileUtils.forceDelete(this.source);
+        result = "Copied into " + destination;
+      }
+    }
+    return result;
+  }
+  
+  public String getStatus()
+  {
+    return "Migrating " + this.source.getName();
+  }
+}
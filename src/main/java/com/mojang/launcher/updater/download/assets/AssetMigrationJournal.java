@@ -0,0 +1,91 @@
+package com.mojang.launcher.updater.download.assets;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class AssetMigrationJournal
+{
+  private static final Logger LOGGER;
+  private final File file;
+  private final Map<String, Entry> entries = new ConcurrentHashMap();
+  
+  public AssetMigrationJournal(File file)
+  {
+    this.file = file;
+    if (!file.isFile()) {
+      return;
+    }
+    try
+    {
+      for (String line : FileUtils.readLines(file, Charsets.UTF_8))
+      {
+        String[] parts = line.split("\t", 4);
+        if (parts.length == 4) {
+          try
+          {
+            this.entries.put(parts[3], new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]));
+          }
+          catch (NumberFormatException ignored) {}
+        }
+      }
+      LOGGER.info("Resuming asset migration with " + this.entries.size() + " journaled file(s)");
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't read asset migration journal " + file + ", starting over", e);
+    }
+  }
+  
+  public String getHash(File source)
+  {
+    Entry entry = (Entry)this.entries.get(source.getAbsolutePath());
+    if ((entry != null) && (entry.size == source.length()) && (entry.modified == source.lastModified())) {
+      return entry.hash;
+    }
+    return null;
+  }
+  
+  public synchronized void record(File source, String hash)
+  {
+    Entry entry = new Entry(source.length(), source.lastModified(), hash);
+    this.entries.put(source.getAbsolutePath(), entry);
+    try
+    {
+      FileUtils.writeStringToFile(this.file, entry.size + "\t" + entry.modified + "\t" + hash + "\t" + source.getAbsolutePath() + "\n", Charsets.UTF_8, true);
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't write asset migration journal " + this.file, e);
+    }
+  }
+  
+  public synchronized void delete()
+  {
+    this.entries.clear();
+    FileUtils.deleteQuietly(this.file);
+  }
+  
+  private static class Entry
+  {
+    private final long size;
+    private final long modified;
+    private final String hash;
+    
+    public Entry(long size, long modified, String hash)
+    {
+      this.size = size;
+      this.modified = modified;
+      this.hash = hash;
+    }
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
@@ -0,0 +1,732 @@
+package com.mojang.launcher.updater.download.assets;
+
+import com.mojang.launcher.updater.download.DownloadSink;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class AssetPack
+{
+  private static final Logger LOGGER;
+  private static final boolean ENABLED = Boolean.getBoolean("launcher.assets.packed");
+  public static final String LOCK_NAME = "objects.lock";
+  public static final String INDEX_NAME = "objects.idx";
+  private static final Pattern PACK_NAME = Pattern.compile("objects-(\\d+)\\.pack");
+  private static final int INDEX_MAGIC = 1296253264;
+  private static final int FORMAT = 1;
+  private static final int HASH_LENGTH = 20;
+  private static final int RECORD_HEADER_LENGTH = 28;
+  private static final int INDEX_HEADER_LENGTH = 24;
+  private static final int INDEX_ENTRY_LENGTH = 36;
+  private static final int FLUSH_THRESHOLD = 256;
+  private static final Map<String, AssetPack> PACKS = new HashMap();
+  private final File objectsDirectory;
+  private final File indexFile;
+  private final FileChannel lockChannel;
+  private final Map<String, Entry> pending = new HashMap();
+  private ByteBuffer index = ByteBuffer.allocate(INDEX_HEADER_LENGTH);
+  private int indexCount;
+  private long indexedLength;
+  private int generation = -1;
+  private RandomAccessFile file;
+  private MappedByteBuffer data;
+  private long length;
+  
+  private AssetPack(File objectsDirectory)
+    throws IOException
+  {
+    this.objectsDirectory = objectsDirectory;
+    this.indexFile = new File(objectsDirectory, INDEX_NAME);
+    this.lockChannel = new RandomAccessFile(new File(objectsDirectory, LOCK_NAME), "rw").getChannel();
+  }
+  
+  public static AssetPack forDirectory(File objectsDirectory)
+  {
+    return open(objectsDirectory, ENABLED);
+  }
+  
+  public static synchronized AssetPack open(File objectsDirectory, boolean create)
+  {
+    String key = objectsDirectory.getAbsolutePath();
+    AssetPack pack = (AssetPack)PACKS.get(key);
+    if ((pack == null) && ((create) || (new File(objectsDirectory, LOCK_NAME).isFile()))) {
+      try
+      {
+        FileUtils.forceMkdir(objectsDirectory);
+        pack = new AssetPack(objectsDirectory);
+        pack.load();
+        PACKS.put(key, pack);
+      }
+      catch (IOException e)
+      {
+        LOGGER.warn("Couldn't open asset pack in " + objectsDirectory + ", using loose objects", e);
+        return null;
+      }
+    }
+    return pack;
+  }
+  
+  public static synchronized void flushAll()
+  {
+    for (AssetPack pack : PACKS.values()) {
+      pack.flush();
+    }
+  }
+  
+  private synchronized void load()
+    throws IOException
+  {
+    FileLock lock = this.lockChannel.lock();
+    try
+    {
+      refresh();
+    }
+    finally
+    {
+      lock.release();
+    }
+    LOGGER.debug("Opened asset pack generation " + this.generation + " in " + this.objectsDirectory + " with " + (this.indexCount + this.pending.size()) + " object(s), " + this.pending.size() + " not yet indexed");
+  }
+  
+  private void refresh()
+    throws IOException
+  {
+    if (indexChanged())
+    {
+      readIndex();
+      if (this.index.getInt(12) != this.generation) {
+        openGeneration(this.index.getInt(12));
+      }
+      this.pending.clear();
+      this.length = this.indexedLength;
+    }
+    if (this.length > this.file.length())
+    {
+      LOGGER.warn("Asset pack index " + this.indexFile + " is ahead of the pack, rebuilding it");
+      clearIndex(this.generation);
+      this.pending.clear();
+      this.length = 0L;
+    }
+    recover();
+    deleteStalePacks();
+  }
+  
+  private boolean indexChanged()
+    throws IOException
+  {
+    if (this.file == null) {
+      return true;
+    }
+    if (!this.indexFile.isFile()) {
+      return this.indexCount > 0;
+    }
+    ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_LENGTH);
+    RandomAccessFile indexAccess = new RandomAccessFile(this.indexFile, "r");
+    try
+    {
+      indexAccess.readFully(header.array());
+    }
+    catch (IOException e)
+    {
+      return true;
+    }
+    finally
+    {
+      indexAccess.close();
+    }
+    for (int i = 0; i < INDEX_HEADER_LENGTH; i++) {
+      if (header.get(i) != this.index.get(i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  private void readIndex()
+    throws IOException
+  {
+    if (!this.indexFile.isFile())
+    {
+      clearIndex(findLatestGeneration());
+      return;
+    }
+    byte[] bytes = FileUtils.readFileToByteArray(this.indexFile);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    if ((bytes.length < INDEX_HEADER_LENGTH) || (buffer.getInt(0) != INDEX_MAGIC) || (buffer.getInt(4) != FORMAT) || (INDEX_HEADER_LENGTH + (long)buffer.getInt(8) * INDEX_ENTRY_LENGTH != bytes.length))
+    {
+      LOGGER.warn("Ignoring unreadable asset pack index " + this.indexFile);
+      clearIndex(findLatestGeneration());
+      return;
+    }
+    this.index = buffer;
+    this.indexCount = buffer.getInt(8);
+    this.indexedLength = buffer.getLong(16);
+  }
+  
+  private void clearIndex(int generation)
+  {
+    this.index = ByteBuffer.allocate(INDEX_HEADER_LENGTH);
+    this.index.putInt(12, generation);
+    this.indexCount = 0;
+    this.indexedLength = 0L;
+  }
+  
+  private int findLatestGeneration()
+  {
+    int result = 0;
+    File[] packs = listPacks();
+    if (packs != null) {
+      for (File pack : packs) {
+        result = Math.max(result, getGeneration(pack));
+      }
+    }
+    return result;
+  }
+  
+  private File[] listPacks()
+  {
+    return this.objectsDirectory.listFiles(new FileFilter()
+    {
+      public boolean accept(File file)
+      {
+        return AssetPack.getGeneration(file) >= 0;
+      }
+    });
+  }
+  
+  private static int getGeneration(File file)
+  {
+    Matcher matcher = PACK_NAME.matcher(file.getName());
+    if (!matcher.matches()) {
+      return -1;
+    }
+    try
+    {
+      return Integer.parseInt(matcher.group(1));
+    }
+    catch (NumberFormatException ignored) {}
+    return -1;
+  }
+  
+  private File getPackFile(int generation)
+  {
+    return new File(this.objectsDirectory, "objects-" + generation + ".pack");
+  }
+  
+  private void openGeneration(int generation)
+    throws IOException
+  {
+    IOUtils.closeQuietly(this.file);
+    this.data = null;
+    this.file = new RandomAccessFile(getPackFile(generation), "rw");
+    this.generation = generation;
+  }
+  
+  private void deleteStalePacks()
+  {
+    File[] packs = listPacks();
+    if (packs != null) {
+      for (File pack : packs) {
+        if ((getGeneration(pack) != this.generation) && (pack.delete())) {
+          LOGGER.debug("Deleted stale asset pack " + pack);
+        }
+      }
+    }
+  }
+  
+  private void recover()
+    throws IOException
+  {
+    long fileLength = this.file.length();
+    long position = this.length;
+    byte[] hash = new byte[HASH_LENGTH];
+    while (position + RECORD_HEADER_LENGTH <= fileLength)
+    {
+      this.file.seek(position);
+      this.file.readFully(hash);
+      long size = this.file.readLong();
+      if ((size < 0L) || (position + RECORD_HEADER_LENGTH + size > fileLength)) {
+        break;
+      }
+      this.pending.put(Hex.encodeHexString(hash), new Entry((byte[])hash.clone(), position + RECORD_HEADER_LENGTH, size));
+      position += RECORD_HEADER_LENGTH + size;
+    }
+    this.length = position;
+    if (position < fileLength)
+    {
+      LOGGER.warn("Discarding " + (fileLength - position) + " byte(s) of incomplete data at the end of " + getPackFile(this.generation));
+      truncate(position);
+    }
+  }
+  
+  private void truncate(long length)
+  {
+    try
+    {
+      this.file.setLength(length);
+    }
+    catch (IOException e)
+    {
+      LOGGER.debug("Couldn't truncate " + getPackFile(this.generation) + ", the next record will overwrite the tail", e);
+    }
+  }
+  
+  public long getSize(String hash)
+  {
+    Entry entry = find(hash);
+    return entry == null ? -1L : entry.length;
+  }
+  
+  public boolean contains(String hash)
+  {
+    return find(hash) != null;
+  }
+  
+  public synchronized Set<String> getHashes()
+  {
+    Set<String> result = new HashSet();
+    for (Entry entry : getEntries()) {
+      result.add(Hex.encodeHexString(entry.hash));
+    }
+    return result;
+  }
+  
+  private synchronized Entry find(String hash)
+  {
+    Entry entry = (Entry)this.pending.get(hash.toLowerCase());
+    if (entry != null) {
+      return entry;
+    }
+    byte[] key = decode(hash);
+    if (key == null) {
+      return null;
+    }
+    int low = 0;
+    int high = this.indexCount - 1;
+    while (low <= high)
+    {
+      int middle = low + high >>> 1;
+      int comparison = compareIndexEntry(middle, key);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return readIndexEntry(middle);
+      }
+    }
+    return null;
+  }
+  
+  private int compareIndexEntry(int entry, byte[] key)
+  {
+    int position = INDEX_HEADER_LENGTH + entry * INDEX_ENTRY_LENGTH;
+    for (int i = 0; i < HASH_LENGTH; i++)
+    {
+      int difference = (this.index.get(position + i) & 0xFF) - (key[i] & 0xFF);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return 0;
+  }
+  
+  private Entry readIndexEntry(int entry)
+  {
+    int position = INDEX_HEADER_LENGTH + entry * INDEX_ENTRY_LENGTH;
+    byte[] hash = new byte[HASH_LENGTH];
+    for (int i = 0; i < HASH_LENGTH; i++) {
+      hash[i] = this.index.get(position + i);
+    }
+    return new Entry(hash, this.index.getLong(position + HASH_LENGTH), this.index.getLong(position + HASH_LENGTH + 8));
+  }
+  
+  private List<Entry> getEntries()
+  {
+    List<Entry> result = new ArrayList(this.indexCount + this.pending.size());
+    for (int i = 0; i < this.indexCount; i++) {
+      result.add(readIndexEntry(i));
+    }
+    result.addAll(this.pending.values());
+    return result;
+  }
+  
+  private ByteBuffer read(Entry entry)
+    throws IOException
+  {
+    if (((this.data == null) || (entry.offset + entry.length > this.data.capacity())) && (this.length <= 2147483647L)) {
+      this.data = this.file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0L, this.length);
+    }
+    if ((this.data != null) && (entry.offset + entry.length <= this.data.capacity()))
+    {
+      ByteBuffer buffer = this.data.duplicate();
+      buffer.limit((int)(entry.offset + entry.length));
+      buffer.position((int)entry.offset);
+      return buffer.slice();
+    }
+    ByteBuffer buffer = ByteBuffer.allocate((int)entry.length);
+    FileChannel channel = this.file.getChannel();
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of " + getPackFile(this.generation));
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+  
+  public synchronized ByteBuffer read(String hash)
+    throws IOException
+  {
+    Entry entry = find(hash);
+    return entry == null ? null : read(entry).asReadOnlyBuffer();
+  }
+  
+  public boolean extract(String hash, File target)
+    throws IOException
+  {
+    ByteBuffer buffer = read(hash);
+    if (buffer == null) {
+      return false;
+    }
+    FileUtils.forceMkdir(target.getParentFile());
+    FileChannel channel = DownloadSink.open(target, false);
+    try
+    {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+    finally
+    {
+      IOUtils.closeQuietly(channel);
+    }
+    return true;
+  }
+  
+  public synchronized boolean put(String hash, File source)
+    throws IOException
+  {
+    byte[] key = decode(hash);
+    if (key == null) {
+      return false;
+    }
+    if (find(hash) != null) {
+      return true;
+    }
+    if (!Arrays.equals(digest(source), key))
+    {
+      LOGGER.warn("Not packing " + source + " as its contents don't match hash " + hash);
+      return false;
+    }
+    FileLock lock = this.lockChannel.lock();
+    try
+    {
+      refresh();
+      if (find(hash) != null) {
+        return true;
+      }
+      append(key, source);
+      if (this.pending.size() >= FLUSH_THRESHOLD) {
+        writeIndexQuietly();
+      }
+    }
+    finally
+    {
+      lock.release();
+    }
+    return true;
+  }
+  
+  private static byte[] digest(File source)
+    throws IOException
+  {
+    MessageDigest digest = DigestUtils.getSha1Digest();
+    InputStream inputStream = new FileInputStream(source);
+    try
+    {
+      DownloadSink.transfer(inputStream, null, digest, -1L);
+    }
+    finally
+    {
+      IOUtils.closeQuietly(inputStream);
+    }
+    return digest.digest();
+  }
+  
+  private void append(byte[] key, File source)
+    throws IOException
+  {
+    long start = this.length;
+    long size = source.length();
+    MessageDigest digest = DigestUtils.getSha1Digest();
+    FileChannel channel = this.file.getChannel();
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+    header.put(key).putLong(size).flip();
+    InputStream inputStream = new FileInputStream(source);
+    try
+    {
+      while (header.hasRemaining()) {
+        channel.write(header, start + header.position());
+      }
+      channel.position(start + RECORD_HEADER_LENGTH);
+      DownloadSink.transfer(inputStream, channel, digest, size);
+    }
+    catch (IOException e)
+    {
+      truncate(start);
+      throw e;
+    }
+    finally
+    {
+      IOUtils.closeQuietly(inputStream);
+    }
+    if (!Arrays.equals(digest.digest(), key))
+    {
+      truncate(start);
+      throw new IOException(source + " changed while it was being packed");
+    }
+    this.length = (start + RECORD_HEADER_LENGTH + size);
+    this.pending.put(Hex.encodeHexString(key), new Entry(key, start + RECORD_HEADER_LENGTH, size));
+  }
+  
+  public synchronized void flush()
+  {
+    if (this.pending.isEmpty()) {
+      return;
+    }
+    try
+    {
+      FileLock lock = this.lockChannel.lock();
+      try
+      {
+        refresh();
+        writeIndexQuietly();
+      }
+      finally
+      {
+        lock.release();
+      }
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't flush asset pack in " + this.objectsDirectory, e);
+    }
+  }
+  
+  private void writeIndexQuietly()
+  {
+    try
+    {
+      writeIndex();
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't write asset pack index " + this.indexFile + ", it will be rebuilt from the pack", e);
+    }
+  }
+  
+  private void writeIndex()
+    throws IOException
+  {
+    List<Entry> entries = getEntries();
+    Collections.sort(entries);
+    File temp = new File(this.indexFile.getPath() + ".tmp");
+    DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+    try
+    {
+      outputStream.writeInt(INDEX_MAGIC);
+      outputStream.writeInt(FORMAT);
+      outputStream.writeInt(entries.size());
+      outputStream.writeInt(this.generation);
+      outputStream.writeLong(this.length);
+      for (Entry entry : entries)
+      {
+        outputStream.write(entry.hash);
+        outputStream.writeLong(entry.offset);
+        outputStream.writeLong(entry.length);
+      }
+    }
+    finally
+    {
+      IOUtils.closeQuietly(outputStream);
+    }
+    if ((this.indexFile.isFile()) && (!this.indexFile.delete()))
+    {
+      FileUtils.deleteQuietly(temp);
+      throw new IOException("Couldn't replace " + this.indexFile);
+    }
+    if (!temp.renameTo(this.indexFile)) {
+      throw new IOException("Couldn't rename " + temp + " to " + this.indexFile);
+    }
+    readIndex();
+    this.pending.clear();
+  }
+  
+  public synchronized List<String> verify()
+    throws IOException
+  {
+    FileLock lock = this.lockChannel.lock();
+    try
+    {
+      refresh();
+    }
+    finally
+    {
+      lock.release();
+    }
+    List<String> corrupt = new ArrayList();
+    MessageDigest digest = DigestUtils.getSha1Digest();
+    long start = System.nanoTime();
+    List<Entry> entries = getEntries();
+    for (Entry entry : entries)
+    {
+      digest.reset();
+      digest.update(read(entry));
+      if (!Arrays.equals(digest.digest(), entry.hash)) {
+        corrupt.add(Hex.encodeHexString(entry.hash));
+      }
+    }
+    LOGGER.info("Verified " + entries.size() + " packed asset(s) in " + (System.nanoTime() - start) / 1000000L + " ms; " + corrupt.size() + " corrupt");
+    return corrupt;
+  }
+  
+  public synchronized int retain(Set<String> hashes)
+    throws IOException
+  {
+    FileLock lock = this.lockChannel.lock();
+    try
+    {
+      refresh();
+      List<Entry> entries = getEntries();
+      List<Entry> kept = new ArrayList();
+      for (Entry entry : entries) {
+        if (hashes.contains(Hex.encodeHexString(entry.hash))) {
+          kept.add(entry);
+        }
+      }
+      if (kept.size() == entries.size()) {
+        return 0;
+      }
+      int next = this.generation + 1;
+      List<Entry> written = new ArrayList();
+      MessageDigest digest = DigestUtils.getSha1Digest();
+      long position = 0L;
+      FileChannel channel = DownloadSink.open(getPackFile(next), false);
+      try
+      {
+        for (Entry entry : kept)
+        {
+          ByteBuffer buffer = read(entry);
+          digest.reset();
+          digest.update(buffer.duplicate());
+          if (!Arrays.equals(digest.digest(), entry.hash))
+          {
+            LOGGER.warn("Dropping corrupt packed asset " + Hex.encodeHexString(entry.hash));
+          }
+          else
+          {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+            header.put(entry.hash).putLong(entry.length).flip();
+            while (header.hasRemaining()) {
+              channel.write(header);
+            }
+            while (buffer.hasRemaining()) {
+              channel.write(buffer);
+            }
+            written.add(new Entry(entry.hash, position + RECORD_HEADER_LENGTH, entry.length));
+            position += RECORD_HEADER_LENGTH + entry.length;
+          }
+        }
+      }
+      finally
+      {
+        IOUtils.closeQuietly(channel);
+      }
+      openGeneration(next);
+      clearIndex(next);
+      this.pending.clear();
+      for (Entry entry : written) {
+        this.pending.put(Hex.encodeHexString(entry.hash), entry);
+      }
+      this.length = position;
+      writeIndex();
+      deleteStalePacks();
+      return entries.size() - written.size();
+    }
+    finally
+    {
+      lock.release();
+    }
+  }
+  
+  private static byte[] decode(String hash)
+  {
+    try
+    {
+      byte[] result = Hex.decodeHex(hash.toCharArray());
+      return result.length == HASH_LENGTH ? result : null;
+    }
+    catch (DecoderException ignored) {}
+    return null;
+  }
+  
+  private static class Entry
+    implements Comparable<Entry>
+  {
+    private final byte[] hash;
+    private final long offset;
+    private final long length;
+    
+    public Entry(byte[] hash, long offset, long length)
+    {
+      this.hash = hash;
+      this.offset = offset;
+      this.length = length;
+    }
+    
+    public int compareTo(Entry other)
+    {
+      for (int i = 0; i < HASH_LENGTH; i++)
+      {
+        int difference = (this.hash[i] & 0xFF) - (other.hash[i] & 0xFF);
+        if (difference != 0) {
+          return difference;
+        }
+      }
+      return 0;
+    }
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
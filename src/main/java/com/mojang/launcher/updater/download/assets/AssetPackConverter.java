@@ -0,0 +1,97 @@
+package com.mojang.launcher.updater.download.assets;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.List;
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.DirectoryFileFilter;
+import org.apache.commons.io.filefilter.FileFileFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class AssetPackConverter
+{
+  private static final Logger LOGGER;
+  
+  public static void main(String[] args)
+    throws IOException
+  {
+    OptionParser optionParser = new OptionParser();
+    optionParser.accepts("help", "Show help").forHelp();
+    optionParser.accepts("keep", "Keep the loose objects after packing them");
+    OptionSpec<File> objectsOption = optionParser.accepts("objects", "The assets/objects directory to convert").withRequiredArg().ofType(File.class);
+    OptionSet optionSet;
+    try
+    {
+      optionSet = optionParser.parse(args);
+    }
+    catch (OptionException e)
+    {
+      optionParser.printHelpOn(System.out);
+      return;
+    }
+    if ((optionSet.has("help")) || (!optionSet.has(objectsOption)))
+    {
+      optionParser.printHelpOn(System.out);
+      return;
+    }
+    List<String> corrupt = convert((File)optionSet.valueOf(objectsOption), !optionSet.has("keep"));
+    if (!corrupt.isEmpty()) {
+      System.exit(1);
+    }
+  }
+  
+  public static List<String> convert(File objectsDirectory, boolean deleteLoose)
+    throws IOException
+  {
+    AssetPack pack = AssetPack.open(objectsDirectory, true);
+    if (pack == null) {
+      throw new IOException("Couldn't open asset pack in " + objectsDirectory);
+    }
+    long start = System.nanoTime();
+    int packed = 0;
+    int skipped = 0;
+    File[] directories = objectsDirectory.listFiles((FileFilter)DirectoryFileFilter.DIRECTORY);
+    if (directories != null) {
+      for (File directory : directories)
+      {
+        File[] files = directory.listFiles((FileFilter)FileFileFilter.FILE);
+        if (files != null) {
+          for (File file : files) {
+            if ((file.getName().length() != 40) || (!file.getName().startsWith(directory.getName())) || (!pack.put(file.getName().toLowerCase(), file)))
+            {
+              LOGGER.warn("Leaving {} loose as it isn't a valid asset object", file);
+              skipped++;
+            }
+            else
+            {
+              packed++;
+              if (deleteLoose) {
+                FileUtils.forceDelete(file);
+              }
+            }
+          }
+        }
+        if ((deleteLoose) && (directory.list() != null) && (directory.list().length == 0)) {
+          FileUtils.deleteQuietly(directory);
+        }
+      }
+    }
+    pack.flush();
+    LOGGER.info("Packed " + packed + " asset object(s) in " + (System.nanoTime() - start) / 1000000L + " ms; " + skipped + " left loose");
+    List<String> corrupt = pack.verify();
+    for (String hash : corrupt) {
+      LOGGER.error("Packed asset object {} is corrupt", hash);
+    }
+    return corrupt;
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
@@ -0,0 +1,240 @@
+package com.mojang.launcher.updater.download.assets;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class VirtualAssets
+{
+  private static final Logger LOGGER;
+  private static final String MANIFEST = ".manifest";
+  private static final int MAX_THREADS = 8;
+  private static final Method TO_PATH = findMethod("java.io.File", "toPath", new String[0]);
+  private static final Method CREATE_LINK = findMethod("java.nio.file.Files", "createLink", new String[] { "java.nio.file.Path", "java.nio.file.Path" });
+  private final AssetIndex index;
+  private final String indexHash;
+  private final File objectsDirectory;
+  private final File virtualRoot;
+  private final boolean objectLayout;
+  private final AssetPack pack;
+  private final AtomicInteger linked = new AtomicInteger();
+  private final AtomicInteger copied = new AtomicInteger();
+  private final AtomicInteger extracted = new AtomicInteger();
+  private volatile boolean linksSupported = (TO_PATH != null) && (CREATE_LINK != null);
+  
+  public VirtualAssets(AssetIndex index, String indexHash, File objectsDirectory, File virtualRoot)
+  {
+    this(index, indexHash, objectsDirectory, virtualRoot, false);
+  }
+  
+  public VirtualAssets(AssetIndex index, String indexHash, File objectsDirectory, File virtualRoot, boolean objectLayout)
+  {
+    this.index = index;
+    this.indexHash = indexHash;
+    this.objectsDirectory = objectsDirectory;
+    this.virtualRoot = virtualRoot;
+    this.objectLayout = objectLayout;
+    this.pack = AssetPack.forDirectory(objectsDirectory);
+  }
+  
+  public boolean isUpToDate()
+  {
+    File manifest = new File(this.virtualRoot, MANIFEST);
+    if ((this.indexHash == null) || (!manifest.isFile())) {
+      return false;
+    }
+    try
+    {
+      return this.indexHash.equalsIgnoreCase(FileUtils.readFileToString(manifest, Charsets.UTF_8).trim());
+    }
+    catch (IOException e)
+    {
+      LOGGER.debug("Couldn't read " + manifest, e);
+    }
+    return false;
+  }
+  
+  public void reconstruct()
+    throws IOException
+  {
+    long start = System.nanoTime();
+    Map<String, AssetIndex.AssetObject> targets = this.index.getFileMap();
+    if (this.objectLayout)
+    {
+      targets = new HashMap();
+      for (AssetIndex.AssetObject object : this.index.getUniqueObjects().keySet()) {
+        targets.put("objects/" + object.getHash().substring(0, 2) + "/" + object.getHash(), object);
+      }
+    }
+    if (isUpToDate())
+    {
+      targets = findMissing(targets);
+      if (targets.isEmpty())
+      {
+        LOGGER.debug("Virtual assets folder at " + this.virtualRoot + " is up to date");
+        return;
+      }
+      LOGGER.info("Restoring " + targets.size() + " missing virtual asset(s) in " + this.virtualRoot);
+    }
+    List<Callable<Object>> tasks = new ArrayList();
+    for (final Map.Entry<String, AssetIndex.AssetObject> entry : targets.entrySet()) {
+      tasks.add(new Callable()
+      {
+        public Object call()
+          throws IOException
+        {
+          VirtualAssets.this.reconstruct((String)entry.getKey(), (AssetIndex.AssetObject)entry.getValue());
+          return null;
+        }
+      });
+    }
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(MAX_THREADS, tasks.size())), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Asset reconstruction #%d").build());
+    try
+    {
+      for (Future<Object> future : executorService.invokeAll(tasks)) {
+        try
+        {
+          future.get();
+        }
+        catch (ExecutionException e)
+        {
+          if ((e.getCause() instanceof IOException)) {
+            throw ((IOException)e.getCause());
+          }
+          throw new IOException("Couldn't reconstruct virtual assets", e.getCause());
+        }
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reconstructing virtual assets");
+    }
+    finally
+    {
+      executorService.shutdownNow();
+    }
+    if (this.indexHash != null) {
+      FileUtils.writeStringToFile(new File(this.virtualRoot, MANIFEST), this.indexHash, Charsets.UTF_8);
+    }
+    LOGGER.info("Reconstructed " + tasks.size() + " virtual asset(s) in " + (System.nanoTime() - start) / 1000000L + " ms; " + this.linked.get() + " linked, " + this.copied.get() + " copied, " + this.extracted.get() + " extracted from pack");
+  }
+  
+  private Map<String, AssetIndex.AssetObject> findMissing(Map<String, AssetIndex.AssetObject> targets)
+  {
+    Map<File, Set<String>> listings = new HashMap();
+    Map<String, AssetIndex.AssetObject> result = new HashMap();
+    for (Map.Entry<String, AssetIndex.AssetObject> entry : targets.entrySet())
+    {
+      File target = new File(this.virtualRoot, (String)entry.getKey());
+      File directory = target.getParentFile();
+      Set<String> names = (Set)listings.get(directory);
+      if (names == null)
+      {
+        String[] list = directory.list();
+        names = list == null ? Collections.<String>emptySet() : new HashSet(Arrays.asList(list));
+        listings.put(directory, names);
+      }
+      if (!names.contains(target.getName())) {
+        result.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return result;
+  }
+  
+  private void reconstruct(String name, AssetIndex.AssetObject object)
+    throws IOException
+  {
+    File target = new File(this.virtualRoot, name);
+    File original = new File(new File(this.objectsDirectory, object.getHash().substring(0, 2)), object.getHash());
+    if ((target.isFile()) && (target.length() == object.getSize())) {
+      return;
+    }
+    if (target.exists()) {
+      FileUtils.forceDelete(target);
+    }
+    FileUtils.forceMkdir(target.getParentFile());
+    if ((!original.isFile()) && (this.pack != null) && (this.pack.extract(object.getHash(), target)))
+    {
+      this.extracted.incrementAndGet();
+      return;
+    }
+    if (this.linksSupported) {
+      try
+      {
+        link(original, target);
+        this.linked.incrementAndGet();
+        return;
+      }
+      catch (IOException e)
+      {
+        if (!original.isFile()) {
+          throw e;
+        }
+        this.linksSupported = false;
+        LOGGER.info("Couldn't hard link assets into " + this.virtualRoot + ", copying them instead: " + e);
+      }
+    }
+    FileUtils.copyFile(original, target, false);
+    this.copied.incrementAndGet();
+  }
+  
+  private static void link(File original, File target)
+    throws IOException
+  {
+    try
+    {
+      CREATE_LINK.invoke(null, new Object[] { TO_PATH.invoke(target, new Object[0]), TO_PATH.invoke(original, new Object[0]) });
+    }
+    catch (InvocationTargetException e)
+    {
+      if ((e.getCause() instanceof IOException)) {
+        throw ((IOException)e.getCause());
+      }
+      throw new IOException("Couldn't link " + target + " to " + original, e.getCause());
+    }
+    catch (IllegalAccessException e)
+    {
+      throw new IOException("Couldn't link " + target + " to " + original, e);
+    }
+  }
+  
+  private static Method findMethod(String className, String name, String[] parameterTypes)
+  {
+    try
+    {
+      Class<?>[] parameters = new Class[parameterTypes.length];
+      for (int i = 0; i < parameterTypes.length; i++) {
+        parameters[i] = Class.forName(parameterTypes[i]);
+      }
+      return Class.forName(className).getMethod(name, parameters);
+    }
+    catch (Exception ignored) {}
+    return null;
+  }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
+}
@@ -20,6 +20,7 @@ public class CompatibilityRule
     private OperatingSystem name;
     private String version;
     private String arch;
+    private transient volatile Boolean current;
     
     public OSRestriction() {}
     
@@ -43,34 +44,28 @@ public class CompatibilityRule
       this.name = osRestriction.name;
       this.version = osRestriction.version;
       this.arch = osRestriction.arch;
+      this.current = osRestriction.current;
     }
     
     public boolean isCurrentOperatingSystem()
+    {
+      Boolean current = this.current;
+      if (current == null) {
+        this.current = current = Boolean.valueOf(matchesCurrentOperatingSystem());
+      }
+      return current.booleanValue();
+    }
+    
+    private boolean matchesCurrentOperatingSystem()
     {
       if ((this.name != null) && (this.name != OperatingSystem.getCurrentPlatform())) {
         return false;
       }
-      if (this.version != null) {
-        try
-        {
-          Pattern pattern = Pattern.compile(this.version);
-          Matcher matcher = pattern.matcher(System.getProperty("os.version"));
-          if (!matcher.matches()) {
-            return false;
-          }
-        }
-        catch (Throwable ignored) {}
+      if ((this.version != null) && (!matches(this.version, CURRENT_VERSION))) {
+        return false;
       }
-      if (this.arch != null) {
-        try
-        {
-          Pattern pattern = Pattern.compile(this.arch);
-          Matcher matcher = pattern.matcher(System.getProperty("os.arch"));
-          if (!matcher.matches()) {
-            return false;
-          }
-        }
-        catch (Throwable ignored) {}
+      if ((this.arch != null) && (!matches(this.arch, CURRENT_ARCH))) {
+        return false;
       }
       return true;
     }
@@ -81,6 +76,8 @@ public class CompatibilityRule
     }
   }
   
+  private static final String CURRENT_VERSION = System.getProperty("os.version");
+  private static final String CURRENT_ARCH = System.getProperty("os.arch");
   private Action action = Action.ALLOW;
   private OSRestriction os;
   
@@ -100,6 +97,18 @@ public class CompatibilityRule
     return this.action;
   }
   
+  private static boolean matches(String regex, String value)
+  {
+    try
+    {
+      Pattern pattern = Pattern.compile(regex);
+      Matcher matcher = pattern.matcher(value);
+      return matcher.matches();
+    }
+    catch (Throwable ignored) {}
+    return true;
+  }
+  
   public Action getAction()
   {
     return this.action;
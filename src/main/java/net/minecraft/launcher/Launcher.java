@@ -8,11 +8,16 @@ import com.mojang.authlib.GameProfile;
 import com.mojang.authlib.UserAuthentication;
 import com.mojang.authlib.exceptions.AuthenticationException;
 import com.mojang.authlib.exceptions.InvalidCredentialsException;
+import com.mojang.launcher.Http;
 import com.mojang.launcher.OperatingSystem;
 import com.mojang.launcher.updater.DateTypeAdapter;
 import com.mojang.launcher.updater.VersionManager;
 import com.mojang.launcher.updater.VersionSyncInfo;
+import com.mojang.launcher.updater.download.MirrorList;
+import com.mojang.launcher.updater.download.PeerCache;
 import com.mojang.launcher.updater.download.assets.AssetIndex;
+import com.mojang.launcher.updater.download.assets.AssetIndexCache;
+import com.mojang.launcher.updater.download.assets.AssetPack;
 import com.mojang.launcher.updater.download.assets.AssetIndex.AssetObject;
 import com.mojang.launcher.versions.CompleteVersion;
 import com.mojang.launcher.versions.Version;
@@ -52,12 +57,11 @@ import net.minecraft.launcher.profile.AuthenticationDatabase;
 import net.minecraft.launcher.profile.Profile;
 import net.minecraft.launcher.profile.ProfileManager;
 import net.minecraft.launcher.updater.CompleteMinecraftVersion;
-import net.minecraft.launcher.updater.Library;
+import net.minecraft.launcher.updater.LibraryPlan;
 import net.minecraft.launcher.updater.LocalVersionList;
 import net.minecraft.launcher.updater.MinecraftVersionManager;
 import net.minecraft.launcher.updater.RemoteVersionList;
 
-import org.apache.commons.io.Charsets;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.AgeFileFilter;
 import org.apache.commons.io.filefilter.DirectoryFileFilter;
@@ -96,6 +100,7 @@ public class Launcher
   public Launcher(JFrame frame, File workingDirectory, Proxy proxy, PasswordAuthentication proxyAuth, String[] args, Integer bootstrapVersion)
   {
     setupErrorHandling();
+    Http.configureConnectionPool();
     this.bootstrapVersion = bootstrapVersion;
     this.userInterface = selectUserInterface(frame);
     if (bootstrapVersion.intValue() < 4)
@@ -116,13 +121,41 @@ public class Launcher
     LOGGER.info("System.getProperty('sun.arch.data.model') == '" + System.getProperty("sun.arch.data.model") + "'");
     
     this.launchDispatcher = new GameLaunchDispatcher(this, processArgs(args));
-    this.launcher = new com.mojang.launcher.Launcher(this.userInterface, workingDirectory, proxy, proxyAuth, new MinecraftVersionManager(new LocalVersionList(workingDirectory), new RemoteVersionList("https://s3.amazonaws.com/Minecraft.Download/", proxy)), Agent.MINECRAFT, MinecraftReleaseTypeFactory.instance(), 17);
+    this.launcher = new com.mojang.launcher.Launcher(this.userInterface, workingDirectory, proxy, proxyAuth, new MinecraftVersionManager(new LocalVersionList(workingDirectory), new RemoteVersionList(LauncherConstants.DOWNLOAD_MIRRORS, proxy, new File(workingDirectory, "launcher_cache"))), Agent.MINECRAFT, MinecraftReleaseTypeFactory.instance(), 17);
     this.profileManager = new ProfileManager(this);
     ((SwingUserInterface)this.userInterface).initializeFrame();
     
+    probeMirrors();
+    startPeerCache(workingDirectory);
     refreshVersionsAndProfiles();
   }
   
+  private void startPeerCache(File workingDirectory)
+  {
+    PeerCache peerCache = PeerCache.getInstance();
+    peerCache.addRoot(LauncherConstants.RESOURCE_MIRRORS.getName(), new File(workingDirectory, "assets/objects"));
+    peerCache.addRoot(LauncherConstants.LIBRARY_MIRRORS.getName(), new File(workingDirectory, "libraries"));
+    peerCache.start();
+  }
+  
+  private void probeMirrors()
+  {
+    getLauncher().getDownloaderExecutorService().submit(new Runnable()
+    {
+      public void run()
+      {
+        try
+        {
+          MirrorList.probeAll(Launcher.this.getLauncher().getProxy());
+        }
+        catch (Throwable e)
+        {
+          Launcher.LOGGER.error("Unexpected exception probing download mirrors", e);
+        }
+      }
+    });
+  }
+  
   private void setupErrorHandling()
   {
     Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler()
@@ -191,13 +224,24 @@ public class Launcher
     {
       public void run()
       {
+        boolean cached = false;
         try
         {
-          Launcher.this.getLauncher().getVersionManager().refreshVersions();
+          cached = Launcher.this.getLauncher().getVersionManager().refreshCachedVersions();
         }
         catch (Throwable e)
         {
-          Launcher.LOGGER.error("Unexpected exception refreshing version list", e);
+          Launcher.LOGGER.error("Unexpected exception loading cached version list", e);
+        }
+        if (!cached) {
+          try
+          {
+            Launcher.this.getLauncher().getVersionManager().refreshVersions();
+          }
+          catch (Throwable e)
+          {
+            Launcher.LOGGER.error("Unexpected exception refreshing version list", e);
+          }
         }
         try
         {
@@ -234,6 +278,16 @@ public class Launcher
           }
         }
         Launcher.this.ensureLoggedIn();
+        if (cached) {
+          try
+          {
+            Launcher.this.getLauncher().getVersionManager().revalidateVersions();
+          }
+          catch (Throwable e)
+          {
+            Launcher.LOGGER.warn("Couldn't revalidate version list, using cached copy", e);
+          }
+        }
       }
     });
   }
@@ -341,7 +395,7 @@ public class Launcher
         CompleteMinecraftVersion version = (CompleteMinecraftVersion)syncInfo.getLocalVersion();
         String assetVersion = version.getAssets() == null ? "legacy" : version.getAssets();
         File indexFile = new File(indexDir, assetVersion + ".json");
-        AssetIndex index = (AssetIndex)this.gson.fromJson(FileUtils.readFileToString(indexFile, Charsets.UTF_8), AssetIndex.class);
+        AssetIndex index = AssetIndexCache.getInstance().getIndex(indexFile);
         for (AssetIndex.AssetObject object : index.getUniqueObjects().keySet()) {
           referencedObjects.add(object.getHash().toLowerCase());
         }
@@ -363,6 +417,14 @@ public class Launcher
         }
       }
     }
+    AssetPack pack = AssetPack.forDirectory(objectsDir);
+    if (pack != null)
+    {
+      int removed = pack.retain(referencedObjects);
+      if (removed > 0) {
+        LOGGER.info("Cleaned up {} orphaned packed object(s)", Integer.valueOf(removed));
+      }
+    }
     deleteEmptyDirectories(objectsDir);
   }
   
@@ -378,25 +440,10 @@ public class Launcher
       if ((syncInfo.getLocalVersion() instanceof CompleteMinecraftVersion))
       {
         CompleteMinecraftVersion version = (CompleteMinecraftVersion)syncInfo.getLocalVersion();
-        for (Library library : version.getRelevantLibraries())
+        for (LibraryPlan.Artifact artifact : version.getLibraryPlan(OperatingSystem.getCurrentPlatform()).getArtifacts())
         {
-          String file = null;
-          if (library.getNatives() != null)
-          {
-            String natives = (String)library.getNatives().get(OperatingSystem.getCurrentPlatform());
-            if (natives != null) {
-              file = library.getArtifactPath(natives);
-            }
-          }
-          else
-          {
-            file = library.getArtifactPath();
-          }
-          if (file != null)
-          {
-            referencedLibraries.add(new File(librariesDir, file));
-            referencedLibraries.add(new File(librariesDir, file + ".sha"));
-          }
+          referencedLibraries.add(new File(librariesDir, artifact.getPath()));
+          referencedLibraries.add(new File(librariesDir, artifact.getPath() + ".sha"));
         }
       }
     }
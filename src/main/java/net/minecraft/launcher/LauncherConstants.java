@@ -1,5 +1,6 @@
 package net.minecraft.launcher;
 
+import com.mojang.launcher.updater.download.MirrorList;
 import java.net.URI;
 import java.net.URISyntaxException;
 
@@ -11,6 +12,9 @@ public class LauncherConstants
   public static final String URL_DOWNLOAD_BASE = "https://s3.amazonaws.com/Minecraft.Download/";
   public static final String URL_RESOURCE_BASE = "http://resources.download.minecraft.net/";
   public static final String URL_LIBRARY_BASE = "https://libraries.minecraft.net/";
+  public static final MirrorList DOWNLOAD_MIRRORS = MirrorList.create("versions", "https://s3.amazonaws.com/Minecraft.Download/");
+  public static final MirrorList RESOURCE_MIRRORS = MirrorList.create("resources", "http://resources.download.minecraft.net/");
+  public static final MirrorList LIBRARY_MIRRORS = MirrorList.create("libraries", "https://libraries.minecraft.net/");
   public static final String URL_BLOG = "https://maniaworld.com.br/news";
   public static final String URL_SUPPORT = "http://help.mojang.com/?ref=launcher";
   public static final String URL_STATUS_CHECKER = "http://status.mojang.com/check";
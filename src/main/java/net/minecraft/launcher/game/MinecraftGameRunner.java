@@ -21,8 +21,14 @@ import com.mojang.launcher.game.process.direct.DirectGameProcessFactory;
 import com.mojang.launcher.game.runner.AbstractGameRunner;
 import com.mojang.launcher.updater.DateTypeAdapter;
 import com.mojang.launcher.updater.VersionSyncInfo;
+import com.mojang.launcher.updater.download.DownloadJob;
 import com.mojang.launcher.updater.download.Downloadable;
 import com.mojang.launcher.updater.download.assets.AssetIndex;
+import com.mojang.launcher.updater.download.assets.AssetIndexCache;
+import com.mojang.launcher.updater.download.assets.AssetMigrationDownloadable;
+import com.mojang.launcher.updater.download.assets.AssetMigrationJournal;
+import com.mojang.launcher.updater.download.assets.AssetPack;
+import com.mojang.launcher.updater.download.assets.VirtualAssets;
 import com.mojang.launcher.updater.download.assets.AssetIndex.AssetObject;
 import com.mojang.launcher.versions.ExtractRules;
 import com.mojang.util.UUIDTypeAdapter;
@@ -30,21 +36,24 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
 import java.net.PasswordAuthentication;
 import java.net.Proxy;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.TreeSet;
 import java.util.UUID;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -55,8 +64,7 @@ import net.minecraft.launcher.profile.Profile;
 import net.minecraft.launcher.profile.Profile.Resolution;
 import net.minecraft.launcher.profile.ProfileManager;
 import net.minecraft.launcher.updater.CompleteMinecraftVersion;
-import net.minecraft.launcher.updater.Library;
-import org.apache.commons.io.Charsets;
+import net.minecraft.launcher.updater.LibraryPlan;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.FileFilterUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
@@ -70,12 +78,17 @@ public class MinecraftGameRunner
   implements GameProcessRunnable
 {
   private static final String CRASH_IDENTIFIER_MAGIC = "#@!@#";
+  private static final IOFileFilter MIGRATABLE_FILTER = FileFilterUtils.notFileFilter(FileFilterUtils.or(new IOFileFilter[] { FileFilterUtils.nameFileFilter("indexes"), FileFilterUtils.nameFileFilter("objects"), FileFilterUtils.nameFileFilter("virtual"), FileFilterUtils.nameFileFilter("skins") }));
   private final Gson gson = new Gson();
   private final DateTypeAdapter dateAdapter = new DateTypeAdapter();
   private final net.minecraft.launcher.Launcher minecraftLauncher;
   private final String[] additionalLaunchArgs;
   private final GameProcessFactory processFactory = new DirectGameProcessFactory();
   private File nativeDir;
+  private File assetsRoot;
+  private DownloadJob migrationJob;
+  private DownloadJob deferredResourceJob;
+  private AssetMigrationJournal migrationJournal;
   private LauncherVisibilityRule visibilityRule = LauncherVisibilityRule.CLOSE_LAUNCHER;
   private UserAuthentication auth;
   private Profile selectedProfile;
@@ -118,10 +131,49 @@ public class MinecraftGameRunner
   
   protected void downloadRequiredFiles(VersionSyncInfo syncInfo)
   {
-    migrateOldAssets();
+    this.migrationJob = createMigrationJob();
+    if (this.migrationJob != null) {
+      addJob(this.migrationJob);
+    }
     super.downloadRequiredFiles(syncInfo);
   }
   
+  protected void downloadResources(DownloadJob resourceJob)
+    throws IOException
+  {
+    if (this.migrationJob == null)
+    {
+      super.downloadResources(resourceJob);
+      return;
+    }
+    this.deferredResourceJob = resourceJob;
+    this.migrationJob.startDownloading(getLauncher().getDownloaderExecutorService());
+  }
+  
+  public void onDownloadJobFinished(DownloadJob job)
+  {
+    if (job != this.migrationJob)
+    {
+      super.onDownloadJobFinished(job);
+      return;
+    }
+    finishMigration();
+    super.onDownloadJobFinished(job);
+    DownloadJob resourceJob = this.deferredResourceJob;
+    this.deferredResourceJob = null;
+    if ((resourceJob != null) && (getStatus() != GameInstanceStatus.IDLE)) {
+      try
+      {
+        super.downloadResources(resourceJob);
+      }
+      catch (IOException e)
+      {
+        LOGGER.error("Couldn't get resources for " + getVersion().getId(), e);
+        setStatus(GameInstanceStatus.IDLE);
+      }
+    }
+  }
+  
   protected void launchGame()
     throws IOException
   {
@@ -265,10 +317,10 @@ public class MinecraftGameRunner
   {
     File assetsDir = new File(getLauncher().getWorkingDirectory(), "assets");
     File indexDir = new File(assetsDir, "indexes");
-    File objectsDir = new File(assetsDir, "objects");
+    File objectsDir = new File(this.assetsRoot == null ? assetsDir : this.assetsRoot, "objects");
     String assetVersion = getVersion().getAssets() == null ? "legacy" : getVersion().getAssets();
     File indexFile = new File(indexDir, assetVersion + ".json");
-    AssetIndex index = (AssetIndex)this.gson.fromJson(FileUtils.readFileToString(indexFile, Charsets.UTF_8), AssetIndex.class);
+    AssetIndex index = AssetIndexCache.getInstance().getIndex(indexFile);
     
     String hash = ((AssetIndex.AssetObject)index.getFileMap().get(name)).getHash();
     return new File(objectsDir, hash.substring(0, 2) + "/" + hash);
@@ -283,25 +335,28 @@ public class MinecraftGameRunner
     String assetVersion = getVersion().getAssets() == null ? "legacy" : getVersion().getAssets();
     File indexFile = new File(indexDir, assetVersion + ".json");
     File virtualRoot = new File(new File(assetsDir, "virtual"), assetVersion);
+    this.assetsRoot = assetsDir;
     if (!indexFile.isFile())
     {
       LOGGER.warn("No assets index file " + virtualRoot + "; can't reconstruct assets");
       return virtualRoot;
     }
-    AssetIndex index = (AssetIndex)this.gson.fromJson(FileUtils.readFileToString(indexFile, Charsets.UTF_8), AssetIndex.class);
+    String indexHash = Downloadable.getDigest(indexFile, "SHA-1", 40);
+    AssetIndex index = AssetIndexCache.getInstance().getIndex(indexFile, indexHash);
     if (index.isVirtual())
     {
       LOGGER.info("Reconstructing virtual assets folder at " + virtualRoot);
-      for (Map.Entry<String, AssetIndex.AssetObject> entry : index.getFileMap().entrySet())
-      {
-        File target = new File(virtualRoot, (String)entry.getKey());
-        File original = new File(new File(objectDir, ((AssetIndex.AssetObject)entry.getValue()).getHash().substring(0, 2)), ((AssetIndex.AssetObject)entry.getValue()).getHash());
-        if (!target.isFile()) {
-          FileUtils.copyFile(original, target, false);
-        }
-      }
+      new VirtualAssets(index, indexHash, objectDir, virtualRoot).reconstruct();
       FileUtils.writeStringToFile(new File(virtualRoot, ".lastused"), this.dateAdapter.serializeToString(new Date()));
     }
+    else if (AssetPack.forDirectory(objectDir) != null)
+    {
+      File cacheRoot = new File(System.getProperty("launcher.assets.cache", new File(assetsDir, "materialized").getPath()), assetVersion);
+      LOGGER.info("Materializing packed assets at " + cacheRoot);
+      FileUtils.copyFile(indexFile, new File(new File(cacheRoot, "indexes"), indexFile.getName()));
+      new VirtualAssets(index, indexHash, objectDir, cacheRoot, true).reconstruct();
+      this.assetsRoot = cacheRoot;
+    }
     return virtualRoot;
   }
   
@@ -349,7 +404,7 @@ public class MinecraftGameRunner
     map.put("game_directory", gameDirectory.getAbsolutePath());
     map.put("game_assets", assetsDirectory.getAbsolutePath());
     
-    map.put("assets_root", new File(getLauncher().getWorkingDirectory(), "assets").getAbsolutePath());
+    map.put("assets_root", (this.assetsRoot == null ? new File(getLauncher().getWorkingDirectory(), "assets") : this.assetsRoot).getAbsolutePath());
     map.put("assets_index_name", version.getAssets() == null ? "legacy" : version.getAssets());
     for (int i = 0; i < split.length; i++) {
       split[i] = substitutor.replace(split[i]);
@@ -357,97 +412,100 @@ public class MinecraftGameRunner
     return split;
   }
   
-  private void migrateOldAssets()
+  private DownloadJob createMigrationJob()
   {
     File sourceDir = new File(getLauncher().getWorkingDirectory(), "assets");
     File objectsDir = new File(sourceDir, "objects");
-    if (!sourceDir.isDirectory()) {
-      return;
+    File[] oldAssets = sourceDir.listFiles((FileFilter)MIGRATABLE_FILTER);
+    if ((oldAssets == null) || (oldAssets.length == 0)) {
+      return null;
     }
-    IOFileFilter migratableFilter = FileFilterUtils.notFileFilter(FileFilterUtils.or(new IOFileFilter[] { FileFilterUtils.nameFileFilter("indexes"), FileFilterUtils.nameFileFilter("objects"), FileFilterUtils.nameFileFilter("virtual"), FileFilterUtils.nameFileFilter("skins") }));
-    for (File file : (TreeSet<File>)new TreeSet(FileUtils.listFiles(sourceDir, TrueFileFilter.TRUE, migratableFilter)))
-    {
-      String hash = Downloadable.getDigest(file, "SHA-1", 40);
-      File destinationFile = new File(objectsDir, hash.substring(0, 2) + "/" + hash);
-      if (!destinationFile.exists())
+    AssetMigrationJournal journal = new AssetMigrationJournal(new File(getLauncher().getWorkingDirectory(), "launcher_asset_migration.journal"));
+    List<Downloadable> downloadables = new ArrayList();
+    for (File file : FileUtils.listFiles(sourceDir, TrueFileFilter.TRUE, MIGRATABLE_FILTER)) {
+      try
       {
-        LOGGER.info("Migrated old asset {} into {}", file, destinationFile );
-        try
-        {
-          FileUtils.copyFile(file, destinationFile);
-        }
-        catch (IOException e)
-        {
-          LOGGER.error("Couldn't migrate old asset", e);
-        }
+        downloadables.add(new AssetMigrationDownloadable(file, objectsDir, journal));
+      }
+      catch (MalformedURLException e)
+      {
+        LOGGER.warn("Couldn't migrate old asset " + file, e);
       }
-      FileUtils.deleteQuietly(file);
     }
-    File[] assets = sourceDir.listFiles();
+    LOGGER.info("Migrating " + downloadables.size() + " old asset(s) into " + objectsDir);
+    DownloadJob job = new DownloadJob("Asset migration", true, this);
+    job.addDownloadables(downloadables);
+    this.migrationJournal = journal;
+    return job;
+  }
+  
+  private void finishMigration()
+  {
+    File sourceDir = new File(getLauncher().getWorkingDirectory(), "assets");
+    if (!FileUtils.listFiles(sourceDir, FileFilterUtils.fileFileFilter(), MIGRATABLE_FILTER).isEmpty())
+    {
+      LOGGER.warn("Some old assets couldn't be migrated, will resume next time");
+      return;
+    }
+    File[] assets = sourceDir.listFiles((FileFilter)MIGRATABLE_FILTER);
     if (assets != null) {
-      for (File file : assets) {
-        if ((!file.getName().equals("indexes")) && (!file.getName().equals("objects")) && (!file.getName().equals("virtual")) && (!file.getName().equals("skins")))
-        {
-          LOGGER.info("Cleaning up old assets directory {} after migration", file );
-          FileUtils.deleteQuietly(file);
-        }
+      for (File file : assets)
+      {
+        LOGGER.info("Cleaning up old assets directory {} after migration", file );
+        FileUtils.deleteQuietly(file);
       }
     }
+    this.migrationJournal.delete();
   }
   
   private void unpackNatives(File targetDir)
     throws IOException
   {
     OperatingSystem os = OperatingSystem.getCurrentPlatform();
-    Collection<Library> libraries = getVersion().getRelevantLibraries();
-    for (Library library : libraries)
+    for (LibraryPlan.Artifact artifact : getVersion().getLibraryPlan(os).getNatives())
     {
-      Map<OperatingSystem, String> nativesPerOs = library.getNatives();
-      if ((nativesPerOs != null) && (nativesPerOs.get(os) != null))
+      File file = artifact.getFile(getLauncher().getWorkingDirectory());
+      ZipFile zip = new ZipFile(file);
+      ExtractRules extractRules = artifact.getLibrary().getExtractRules();
+      try
       {
-        File file = new File(getLauncher().getWorkingDirectory(), "libraries/" + library.getArtifactPath((String)nativesPerOs.get(os)));
-        ZipFile zip = new ZipFile(file);
-        ExtractRules extractRules = library.getExtractRules();
-        try
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements())
         {
-          Enumeration<? extends ZipEntry> entries = zip.entries();
-          while (entries.hasMoreElements())
+          ZipEntry entry = (ZipEntry)entries.nextElement();
+          if ((extractRules == null) || (extractRules.shouldExtract(entry.getName())))
           {
-            ZipEntry entry = (ZipEntry)entries.nextElement();
-            if ((extractRules == null) || (extractRules.shouldExtract(entry.getName())))
+            File targetFile = new File(targetDir, entry.getName());
+            if (targetFile.getParentFile() != null) {
+              targetFile.getParentFile().mkdirs();
+            }
+            if (!entry.isDirectory())
             {
-              File targetFile = new File(targetDir, entry.getName());
-              if (targetFile.getParentFile() != null) {
-                targetFile.getParentFile().mkdirs();
-              }
-              if (!entry.isDirectory())
+              BufferedInputStream inputStream = new BufferedInputStream(zip.getInputStream(entry));
+              
+              byte[] buffer = new byte[2048];
+              FileOutputStream outputStream = new FileOutputStream(targetFile);
+              BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream);
+              try
               {
-                BufferedInputStream inputStream = new BufferedInputStream(zip.getInputStream(entry));
-                
-                byte[] buffer = new byte[2048];
-                FileOutputStream outputStream = new FileOutputStream(targetFile);
-                BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream);
-                try
-                {
-                  int length;
-                  while ((length = inputStream.read(buffer, 0, buffer.length)) != -1) {
-                    bufferedOutputStream.write(buffer, 0, length);
-                  }
-                }
-                finally
-                {
-                  Downloadable.closeSilently(bufferedOutputStream);
-                  Downloadable.closeSilently(outputStream);
-                  Downloadable.closeSilently(inputStream);
+                int length;
+                while ((length = inputStream.read(buffer, 0, buffer.length)) != -1) {
+                  bufferedOutputStream.write(buffer, 0, length);
                 }
               }
+              finally
+              {
+                Downloadable.closeSilently(bufferedOutputStream);
+                Downloadable.closeSilently(outputStream);
+                Downloadable.closeSilently(inputStream);
+              }
             }
           }
         }
-        finally
-        {
-          zip.close();
-        }
+      }
+      finally
+      {
+        zip.close();
       }
     }
   }
@@ -1,6 +1,7 @@
 package net.minecraft.launcher.updater;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.mojang.launcher.OperatingSystem;
@@ -13,11 +14,12 @@ import com.mojang.launcher.versions.CompatibilityRule.Action;
 import com.mojang.launcher.versions.CompleteVersion;
 import com.mojang.launcher.versions.ReleaseType;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.Proxy;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -25,7 +27,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
+import net.minecraft.launcher.game.MinecraftReleaseType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -48,22 +52,15 @@ public class CompleteMinecraftVersion
   private String jar;
   private CompleteMinecraftVersion savableVersion;
   private transient boolean synced = false;
+  private transient volatile Callable<CompleteMinecraftVersion> details;
+  private transient volatile LibraryPlan libraryPlan;
   
   public CompleteMinecraftVersion() {}
   
   public CompleteMinecraftVersion(CompleteMinecraftVersion version)
   {
-    this.inheritsFrom = version.inheritsFrom;
-    this.id = version.id;
-    this.time = version.time;
-    this.releaseTime = version.releaseTime;
-    this.type = version.type;
-    this.minecraftArguments = version.minecraftArguments;
-    this.mainClass = version.mainClass;
-    this.minimumLauncherVersion = version.minimumLauncherVersion;
-    this.incompatibilityReason = version.incompatibilityReason;
-    this.assets = version.assets;
-    this.jar = version.jar;
+    version.loadDetails();
+    copyFields(version);
     if (version.libraries != null)
     {
       this.libraries = Lists.newArrayList();
@@ -80,6 +77,21 @@ public class CompleteMinecraftVersion
     }
   }
   
+  private void copyFields(CompleteMinecraftVersion version)
+  {
+    this.inheritsFrom = version.inheritsFrom;
+    this.id = version.id;
+    this.time = version.time;
+    this.releaseTime = version.releaseTime;
+    this.type = version.type;
+    this.minecraftArguments = version.minecraftArguments;
+    this.mainClass = version.mainClass;
+    this.minimumLauncherVersion = version.minimumLauncherVersion;
+    this.incompatibilityReason = version.incompatibilityReason;
+    this.assets = version.assets;
+    this.jar = version.jar;
+  }
+  
   public String getId()
   {
     return this.id;
@@ -102,6 +114,7 @@ public class CompleteMinecraftVersion
   
   public List<Library> getLibraries()
   {
+    loadDetails();
     return this.libraries;
   }
   
@@ -125,23 +138,25 @@ public class CompleteMinecraftVersion
   
   public Collection<Library> getRelevantLibraries()
   {
-    List<Library> result = new ArrayList();
-    for (Library library : this.libraries) {
-      if (library.appliesToCurrentEnvironment()) {
-        result.add(library);
-      }
+    return new ArrayList(getLibraryPlan(OperatingSystem.getCurrentPlatform()).getLibraries());
+  }
+  
+  public LibraryPlan getLibraryPlan(OperatingSystem os)
+  {
+    LibraryPlan plan = this.libraryPlan;
+    if ((plan == null) || (plan.getOperatingSystem() != os))
+    {
+      plan = new LibraryPlan(os, getLibraries());
+      this.libraryPlan = plan;
     }
-    return result;
+    return plan;
   }
   
   public Collection<File> getClassPath(OperatingSystem os, File base)
   {
-    Collection<Library> libraries = getRelevantLibraries();
     Collection<File> result = new ArrayList();
-    for (Library library : libraries) {
-      if (library.getNatives() == null) {
-        result.add(new File(base, "libraries/" + library.getArtifactPath()));
-      }
+    for (LibraryPlan.Artifact artifact : getLibraryPlan(os).getClassPath()) {
+      result.add(artifact.getFile(base));
     }
     result.add(new File(base, "versions/" + getJar() + "/" + getJar() + ".jar"));
     
@@ -151,18 +166,8 @@ public class CompleteMinecraftVersion
   public Set<String> getRequiredFiles(OperatingSystem os)
   {
     Set<String> neededFiles = new HashSet();
-    for (Library library : getRelevantLibraries()) {
-      if (library.getNatives() != null)
-      {
-        String natives = (String)library.getNatives().get(os);
-        if (natives != null) {
-          neededFiles.add("libraries/" + library.getArtifactPath(natives));
-        }
-      }
-      else
-      {
-        neededFiles.add("libraries/" + library.getArtifactPath());
-      }
+    for (LibraryPlan.Artifact artifact : getLibraryPlan(os).getArtifacts()) {
+      neededFiles.add("libraries/" + artifact.getPath());
     }
     return neededFiles;
   }
@@ -171,27 +176,11 @@ public class CompleteMinecraftVersion
     throws MalformedURLException
   {
     Set<Downloadable> neededFiles = new HashSet();
-    for (Library library : getRelevantLibraries())
+    for (LibraryPlan.Artifact artifact : getLibraryPlan(os).getArtifacts())
     {
-      String file = null;
-      if (library.getNatives() != null)
-      {
-        String natives = (String)library.getNatives().get(os);
-        if (natives != null) {
-          file = library.getArtifactPath(natives);
-        }
-      }
-      else
-      {
-        file = library.getArtifactPath();
-      }
-      if (file != null)
-      {
-        URL url = new URL(library.getDownloadUrl() + file);
-        File local = new File(targetDirectory, "libraries/" + file);
-        if ((!local.isFile()) || (!library.hasCustomUrl())) {
-          neededFiles.add(new ChecksummedDownloadable(proxy, url, local, ignoreLocalFiles));
-        }
+      File local = artifact.getFile(targetDirectory);
+      if ((!local.isFile()) || (!artifact.getLibrary().hasCustomUrl())) {
+        neededFiles.add(new ChecksummedDownloadable(proxy, artifact.getUrl(), local, ignoreLocalFiles));
       }
     }
     return neededFiles;
@@ -214,6 +203,7 @@ public class CompleteMinecraftVersion
   
   public boolean appliesToCurrentEnvironment()
   {
+    loadDetails();
     if (this.compatibilityRules == null) {
       return true;
     }
@@ -265,12 +255,15 @@ public class CompleteMinecraftVersion
     if (this.inheritsFrom == null) {
       return this;
     }
+    loadDetails();
     if (!resolvedSoFar.add(this.id)) {
       throw new IllegalStateException("Circular dependency detected");
     }
     VersionSyncInfo parentSync = versionManager.getVersionSyncInfo(this.inheritsFrom);
     CompleteMinecraftVersion parent = versionManager.getLatestCompleteVersion(parentSync).resolve(versionManager, resolvedSoFar);
-    CompleteMinecraftVersion result = new CompleteMinecraftVersion(parent);
+    parent.loadDetails();
+    CompleteMinecraftVersion result = new CompleteMinecraftVersion();
+    result.copyFields(parent);
     if ((!parentSync.isInstalled()) || (!parentSync.isUpToDate()) || (parentSync.getLatestSource() != VersionSyncInfo.VersionSource.LOCAL)) {
       versionManager.installVersion(parent);
     }
@@ -295,23 +288,111 @@ public class CompleteMinecraftVersion
     if (this.jar != null) {
       result.jar = this.jar;
     }
-    if (this.libraries != null)
+    result.libraries = concat(this.libraries, parent.libraries);
+    result.compatibilityRules = concat(parent.compatibilityRules, this.compatibilityRules);
+    return result;
+  }
+  
+  private static <T> List<T> concat(List<T> first, List<T> second)
+  {
+    if (first == null) {
+      return second == null ? null : ImmutableList.copyOf(second);
+    }
+    if (second == null) {
+      return ImmutableList.copyOf(first);
+    }
+    return ImmutableList.<T>builder().addAll(first).addAll(second).build();
+  }
+  
+  void loadDetails()
+  {
+    if (this.details == null) {
+      return;
+    }
+    synchronized (this)
     {
-      List<Library> newLibraries = Lists.newArrayList();
-      for (Library library : this.libraries) {
-        newLibraries.add(new Library(library));
+      Callable<CompleteMinecraftVersion> details = this.details;
+      if (details == null) {
+        return;
       }
-      for (Library library : result.libraries) {
-        newLibraries.add(library);
+      try
+      {
+        CompleteMinecraftVersion full = (CompleteMinecraftVersion)details.call();
+        this.libraries = full.libraries;
+        this.compatibilityRules = full.compatibilityRules;
       }
-      result.libraries = newLibraries;
-    }
-    if (this.compatibilityRules != null) {
-      for (CompatibilityRule compatibilityRule : this.compatibilityRules) {
-        result.compatibilityRules.add(new CompatibilityRule(compatibilityRule));
+      catch (Exception e)
+      {
+        LOGGER.error("Couldn't load libraries of version " + this.id, e);
+        this.libraries = Lists.newArrayList();
       }
+      this.details = null;
+    }
+  }
+  
+  static CompleteMinecraftVersion readSummary(DataInput input, Callable<CompleteMinecraftVersion> details)
+    throws IOException
+  {
+    CompleteMinecraftVersion version = new CompleteMinecraftVersion();
+    version.id = input.readUTF();
+    version.time = readDate(input);
+    version.releaseTime = readDate(input);
+    version.type = MinecraftReleaseType.getByName(input.readUTF());
+    version.inheritsFrom = readString(input);
+    version.minecraftArguments = readString(input);
+    version.mainClass = readString(input);
+    version.minimumLauncherVersion = input.readInt();
+    version.incompatibilityReason = readString(input);
+    version.assets = readString(input);
+    version.jar = readString(input);
+    version.details = details;
+    return version;
+  }
+  
+  void writeSummary(DataOutput output)
+    throws IOException
+  {
+    output.writeUTF(this.id);
+    writeDate(output, this.time);
+    writeDate(output, this.releaseTime);
+    output.writeUTF(this.type.getName());
+    writeString(output, this.inheritsFrom);
+    writeString(output, this.minecraftArguments);
+    writeString(output, this.mainClass);
+    output.writeInt(this.minimumLauncherVersion);
+    writeString(output, this.incompatibilityReason);
+    writeString(output, this.assets);
+    writeString(output, this.jar);
+  }
+  
+  private static String readString(DataInput input)
+    throws IOException
+  {
+    return input.readBoolean() ? input.readUTF() : null;
+  }
+  
+  private static void writeString(DataOutput output, String value)
+    throws IOException
+  {
+    output.writeBoolean(value != null);
+    if (value != null) {
+      output.writeUTF(value);
+    }
+  }
+  
+  private static Date readDate(DataInput input)
+    throws IOException
+  {
+    return input.readBoolean() ? new Date(input.readLong()) : null;
+  }
+  
+  private static void writeDate(DataOutput output, Date value)
+    throws IOException
+  {
+    output.writeBoolean(value != null);
+    if (value != null) {
+      output.writeLong(value.getTime());
     }
-    return result;
   }
   
   public CompleteMinecraftVersion getSavableVersion()
@@ -4,6 +4,7 @@ import com.mojang.launcher.OperatingSystem;
 import com.mojang.launcher.versions.CompatibilityRule;
 import com.mojang.launcher.versions.CompatibilityRule.Action;
 import com.mojang.launcher.versions.ExtractRules;
+import net.minecraft.launcher.LauncherConstants;
 
 import java.util.ArrayList;
 import java.util.EnumMap;
@@ -167,7 +168,7 @@ public class Library
     if (this.url != null) {
       return this.url;
     }
-    return "https://libraries.minecraft.net/";
+    return LauncherConstants.LIBRARY_MIRRORS.getPrimary();
   }   
   static {
       SUBSTITUTOR = new StrSubstitutor((Map<String, String>)new HashMap<String, String>() {
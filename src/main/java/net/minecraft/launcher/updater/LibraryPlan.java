@@ -0,0 +1,124 @@
+package net.minecraft.launcher.updater;
+
+import com.mojang.launcher.OperatingSystem;
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class LibraryPlan
+{
+  private final OperatingSystem os;
+  private final List<Library> libraries = new ArrayList();
+  private final List<Artifact> artifacts = new ArrayList();
+  private final List<Artifact> classPath = new ArrayList();
+  private final List<Artifact> natives = new ArrayList();
+  
+  public LibraryPlan(OperatingSystem os, Collection<Library> libraries)
+  {
+    this.os = os;
+    if (libraries == null) {
+      return;
+    }
+    for (Library library : libraries) {
+      if (library.appliesToCurrentEnvironment())
+      {
+        this.libraries.add(library);
+        if (library.getNatives() != null)
+        {
+          String classifier = (String)library.getNatives().get(os);
+          if (classifier != null)
+          {
+            Artifact artifact = new Artifact(library, library.getArtifactPath(classifier), classifier);
+            this.artifacts.add(artifact);
+            this.natives.add(artifact);
+          }
+        }
+        else
+        {
+          Artifact artifact = new Artifact(library, library.getArtifactPath(), null);
+          this.artifacts.add(artifact);
+          this.classPath.add(artifact);
+        }
+      }
+    }
+  }
+  
+  public OperatingSystem getOperatingSystem()
+  {
+    return this.os;
+  }
+  
+  public List<Library> getLibraries()
+  {
+    return Collections.unmodifiableList(this.libraries);
+  }
+  
+  public List<Artifact> getArtifacts()
+  {
+    return Collections.unmodifiableList(this.artifacts);
+  }
+  
+  public List<Artifact> getClassPath()
+  {
+    return Collections.unmodifiableList(this.classPath);
+  }
+  
+  public List<Artifact> getNatives()
+  {
+    return Collections.unmodifiableList(this.natives);
+  }
+  
+  public static class Artifact
+  {
+    private final Library library;
+    private final String path;
+    private final String classifier;
+    
+    public Artifact(Library library, String path, String classifier)
+    {
+      this.library = library;
+      this.path = path;
+      this.classifier = classifier;
+    }
+    
+    public Library getLibrary()
+    {
+      return this.library;
+    }
+    
+    public String getPath()
+    {
+      return this.path;
+    }
+    
+    public String getClassifier()
+    {
+      return this.classifier;
+    }
+    
+    public boolean isNative()
+    {
+      return this.classifier != null;
+    }
+    
+    public URL getUrl()
+      throws MalformedURLException
+    {
+      return new URL(this.library.getDownloadUrl() + this.path);
+    }
+    
+    public File getFile(File baseDirectory)
+    {
+      return new File(baseDirectory, "libraries/" + this.path);
+    }
+    
+    public String toString()
+    {
+      return "Artifact{path='" + this.path + '\'' + ", classifier='" + this.classifier + '\'' + '}';
+    }
+  }
+}
@@ -1,19 +1,43 @@
 package net.minecraft.launcher.updater;
 
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.mojang.launcher.OperatingSystem;
 import com.mojang.launcher.versions.CompleteVersion;
 import com.mojang.launcher.versions.Version;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import net.minecraft.launcher.game.MinecraftReleaseType;
+import org.apache.commons.io.Charsets;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -21,8 +45,12 @@ public class LocalVersionList
   extends FileBasedVersionList
 {
   private static final Logger LOGGER;
+  private static final int SNAPSHOT_MAGIC = 1280730707;
+  private static final int SNAPSHOT_FORMAT = 1;
+  private static final long MODIFIED_TIME_GRANULARITY = 2000L;
   private final File baseDirectory;
   private final File baseVersionsDir;
+  private final File snapshotFile;
   
   public LocalVersionList(File baseDirectory)
   {
@@ -31,6 +59,7 @@ public class LocalVersionList
     }
     this.baseDirectory = baseDirectory;
     this.baseVersionsDir = new File(this.baseDirectory, "versions");
+    this.snapshotFile = new File(this.baseDirectory, "launcher_versions.dat");
     if (!this.baseVersionsDir.isDirectory()) {
       this.baseVersionsDir.mkdirs();
     }
@@ -45,47 +74,220 @@ public class LocalVersionList
   public void refreshVersions()
     throws IOException
   {
-    clearCache();
-    
+    long start = System.nanoTime();
+    Map<String, SnapshotEntry> snapshot = readSnapshot();
     File[] files = this.baseVersionsDir.listFiles();
-    if (files == null) {
+    if (files == null)
+    {
+      clearCache();
       return;
     }
-    for (File directory : files)
+    Arrays.sort(files);
+    Map<String, SnapshotEntry> entries = new LinkedHashMap();
+    List<Future<CompleteVersion>> results = new ArrayList();
+    List<Version> versions = new ArrayList();
+    Map<MinecraftReleaseType, Version> latest = Maps.newEnumMap(MinecraftReleaseType.class);
+    ExecutorService executorService = null;
+    int parsed = 0;
+    try
     {
-      String id = directory.getName();
-      File jsonFile = new File(directory, id + ".json");
-      if ((directory.isDirectory()) && (jsonFile.exists())) {
-        try
+      for (File directory : files)
+      {
+        final String id = directory.getName();
+        File jsonFile = new File(directory, id + ".json");
+        if ((directory.isDirectory()) && (jsonFile.exists()))
         {
-          String path = "versions/" + id + "/" + id + ".json";
-          CompleteVersion version = (CompleteVersion)this.gson.fromJson(getContent(path), CompleteMinecraftVersion.class);
-          if (version.getType() == null)
+          SnapshotEntry entry = (SnapshotEntry)snapshot.get(id);
+          if ((entry == null) || (entry.size != jsonFile.length()) || (entry.modified != jsonFile.lastModified()))
+          {
+            entry = new SnapshotEntry(jsonFile.length(), jsonFile.lastModified(), null);
+            if (executorService == null) {
+              executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Version scan #%d").build());
+            }
+            results.add(executorService.submit(new Callable()
+            {
+              public CompleteVersion call()
+              {
+                return LocalVersionList.this.loadVersion(id);
+              }
+            }));
+            parsed++;
+          }
+          else
           {
-            LOGGER.warn("Ignoring: " + path + "; it has an invalid version specified");
-            return;
+            results.add(Futures.immediateFuture(entry.version));
           }
-          if (version.getId().equals(id)) {
-            addVersion(version);
-          } else {
-            LOGGER.warn("Ignoring: " + path + "; it contains id: '" + version.getId() + "' expected '" + id + "'");
+          entries.put(id, entry);
+        }
+      }
+      long listed = System.nanoTime();
+      for (Future<CompleteVersion> result : results) {
+        try
+        {
+          CompleteVersion version = (CompleteVersion)result.get();
+          if (version != null)
+          {
+            versions.add(version);
+            ((SnapshotEntry)entries.get(version.getId())).version = ((CompleteMinecraftVersion)version);
           }
         }
-        catch (RuntimeException ex)
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while loading local versions");
+        }
+        catch (ExecutionException e)
         {
-          LOGGER.error("Couldn't load local version " + jsonFile.getAbsolutePath(), ex);
+          LOGGER.error("Unexpected exception loading local version", e.getCause());
         }
       }
+      long loaded = System.nanoTime();
+      for (Version version : versions)
+      {
+        MinecraftReleaseType type = (MinecraftReleaseType)version.getType();
+        if ((latest.get(type) == null) || (((Version)latest.get(type)).getUpdatedTime().before(version.getUpdatedTime()))) {
+          latest.put(type, version);
+        }
+      }
+      replaceVersions(versions, latest);
+      if ((parsed > 0) || (entries.size() != snapshot.size())) {
+        writeSnapshot(entries);
+      }
+      long indexed = System.nanoTime();
+      LOGGER.info("Loaded " + versions.size() + " local version(s), " + parsed + " parsed and " + (results.size() - parsed) + " from snapshot: listed in " + (listed - start) / 1000000L + " ms, loaded in " + (loaded - listed) / 1000000L + " ms, indexed in " + (indexed - loaded) / 1000000L + " ms");
     }
-    for (Version version : getVersions())
+    finally
     {
-      MinecraftReleaseType type = (MinecraftReleaseType)version.getType();
-      if ((getLatestVersion(type) == null) || (getLatestVersion(type).getUpdatedTime().before(version.getUpdatedTime()))) {
-        setLatestVersion(version);
+      if (executorService != null) {
+        executorService.shutdownNow();
       }
     }
   }
   
+  private Map<String, SnapshotEntry> readSnapshot()
+  {
+    Map<String, SnapshotEntry> result = new HashMap();
+    if (!this.snapshotFile.isFile()) {
+      return result;
+    }
+    DataInputStream input = null;
+    try
+    {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(this.snapshotFile)));
+      if ((input.readInt() != SNAPSHOT_MAGIC) || (input.readInt() != SNAPSHOT_FORMAT)) {
+        return result;
+      }
+      int count = input.readInt();
+      for (int i = 0; i < count; i++)
+      {
+        long size = input.readLong();
+        long modified = input.readLong();
+        final String id = input.readUTF();
+        CompleteMinecraftVersion version = CompleteMinecraftVersion.readSummary(input, new Callable()
+        {
+          public CompleteMinecraftVersion call()
+            throws IOException
+          {
+            CompleteVersion version = LocalVersionList.this.loadVersion(id);
+            if (version == null) {
+              throw new IOException("Couldn't load local version " + id);
+            }
+            return (CompleteMinecraftVersion)version;
+          }
+        });
+        if ((version.getType() != null) && (id.equals(version.getId()))) {
+          result.put(id, new SnapshotEntry(size, modified, version));
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't read version snapshot " + this.snapshotFile + ", versions will be parsed again", e);
+      result.clear();
+    }
+    finally
+    {
+      IOUtils.closeQuietly(input);
+    }
+    return result;
+  }
+  
+  private void writeSnapshot(Map<String, SnapshotEntry> entries)
+  {
+    long cutoff = System.currentTimeMillis() - MODIFIED_TIME_GRANULARITY;
+    List<Map.Entry<String, SnapshotEntry>> stable = new ArrayList();
+    for (Map.Entry<String, SnapshotEntry> entry : entries.entrySet()) {
+      if ((((SnapshotEntry)entry.getValue()).version != null) && (((SnapshotEntry)entry.getValue()).modified < cutoff)) {
+        stable.add(entry);
+      }
+    }
+    File temp = new File(this.snapshotFile.getPath() + ".tmp");
+    DataOutputStream output = null;
+    try
+    {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      output.writeInt(SNAPSHOT_MAGIC);
+      output.writeInt(SNAPSHOT_FORMAT);
+      output.writeInt(stable.size());
+      for (Map.Entry<String, SnapshotEntry> entry : stable)
+      {
+        SnapshotEntry snapshotEntry = (SnapshotEntry)entry.getValue();
+        output.writeLong(snapshotEntry.size);
+        output.writeLong(snapshotEntry.modified);
+        output.writeUTF((String)entry.getKey());
+        snapshotEntry.version.writeSummary(output);
+      }
+      output.close();
+      output = null;
+      if ((this.snapshotFile.isFile()) && (!this.snapshotFile.delete())) {
+        throw new IOException("Couldn't replace " + this.snapshotFile);
+      }
+      if (!temp.renameTo(this.snapshotFile)) {
+        throw new IOException("Couldn't rename " + temp + " to " + this.snapshotFile);
+      }
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't save version snapshot " + this.snapshotFile, e);
+      IOUtils.closeQuietly(output);
+      FileUtils.deleteQuietly(temp);
+    }
+  }
+  private CompleteVersion loadVersion(String id)
+  {
+    String path = "versions/" + id + "/" + id + ".json";
+    Reader reader = null;
+    try
+    {
+      reader = new InputStreamReader(new BufferedInputStream(getFileInputStream(path)), Charsets.UTF_8);
+      CompleteVersion version = (CompleteVersion)this.gson.fromJson(reader, CompleteMinecraftVersion.class);
+      if ((version == null) || (version.getType() == null))
+      {
+        LOGGER.warn("Ignoring: " + path + "; it has an invalid version specified");
+        return null;
+      }
+      if (!id.equals(version.getId()))
+      {
+        LOGGER.warn("Ignoring: " + path + "; it contains id: '" + version.getId() + "' expected '" + id + "'");
+        return null;
+      }
+      return version;
+    }
+    catch (IOException ex)
+    {
+      LOGGER.error("Couldn't load local version " + new File(this.baseDirectory, path).getAbsolutePath(), ex);
+    }
+    catch (RuntimeException ex)
+    {
+      LOGGER.error("Couldn't load local version " + new File(this.baseDirectory, path).getAbsolutePath(), ex);
+    }
+    finally
+    {
+      IOUtils.closeQuietly(reader);
+    }
+    return null;
+  }
+  
   public void saveVersionList()
     throws IOException
   {
@@ -133,6 +335,20 @@ public class LocalVersionList
       FileUtils.deleteQuietly(dir);
     }
   }
+  private static class SnapshotEntry
+  {
+    private final long size;
+    private final long modified;
+    private CompleteMinecraftVersion version;
+    
+    public SnapshotEntry(long size, long modified, CompleteMinecraftVersion version)
+    {
+      this.size = size;
+      this.modified = modified;
+      this.version = version;
+    }
+  }
+  
   static {
       LOGGER = LogManager.getLogger();
   }
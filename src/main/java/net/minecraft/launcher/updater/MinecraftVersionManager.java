@@ -2,6 +2,7 @@ package net.minecraft.launcher.updater;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.mojang.launcher.OperatingSystem;
 import com.mojang.launcher.events.RefreshedVersionsListener;
@@ -13,19 +14,23 @@ import com.mojang.launcher.updater.VersionSyncInfo.VersionSource;
 import com.mojang.launcher.updater.download.DownloadJob;
 import com.mojang.launcher.updater.download.Downloadable;
 import com.mojang.launcher.updater.download.EtagDownloadable;
+import com.mojang.launcher.updater.download.RevalidationCache;
 import com.mojang.launcher.updater.download.assets.AssetDownloadable;
 import com.mojang.launcher.updater.download.assets.AssetIndex;
+import com.mojang.launcher.updater.download.assets.AssetIndexCache;
+import com.mojang.launcher.updater.download.assets.AssetPack;
 import com.mojang.launcher.updater.download.assets.AssetIndex.AssetObject;
 import com.mojang.launcher.versions.CompleteVersion;
 import com.mojang.launcher.versions.ReleaseType;
 import com.mojang.launcher.versions.Version;
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.Proxy;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -35,11 +40,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.minecraft.launcher.LauncherConstants;
 import net.minecraft.launcher.game.MinecraftReleaseType;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.filefilter.DirectoryFileFilter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -47,13 +60,31 @@ public class MinecraftVersionManager
   implements VersionManager
 {
   private static final Logger LOGGER;
+  private static final Comparator<VersionSyncInfo> SYNC_INFO_ORDER = new Comparator<VersionSyncInfo>()
+  {
+    public int compare(VersionSyncInfo a, VersionSyncInfo b)
+    {
+      Version aVer = a.getLatestVersion();
+      Version bVer = b.getLatestVersion();
+      if ((aVer.getReleaseTime() != null) && (bVer.getReleaseTime() != null)) {
+        return bVer.getReleaseTime().compareTo(aVer.getReleaseTime());
+      }
+      return bVer.getUpdatedTime().compareTo(aVer.getUpdatedTime());
+    }
+  };
+  private static final int ASSET_SCAN_THREADS = 8;
+  private static ExecutorService assetScanExecutor;
   private final VersionList localVersionList;
   private final VersionList remoteVersionList;
   private final ThreadPoolExecutor executorService = new ExceptionalThreadPoolExecutor(4, 8, 30L, TimeUnit.SECONDS);
   private final List<RefreshedVersionsListener> refreshedVersionsListeners = Collections.synchronizedList(new ArrayList());
-  private final Object refreshLock = new Object();
-  private boolean isRefreshing;
   private final Gson gson = new Gson();
+  private final Map<String, CompleteMinecraftVersion> resolvedVersions = new ConcurrentHashMap();
+  private final Object indexLock = new Object();
+  private final AtomicInteger versionsGeneration = new AtomicInteger();
+  private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+  private volatile VersionIndex versionIndex;
+  private volatile Thread indexBuilder;
   
   public MinecraftVersionManager(VersionList localVersionList, VersionList remoteVersionList)
   {
@@ -64,10 +95,6 @@ public class MinecraftVersionManager
   public void refreshVersions()
     throws IOException
   {
-    synchronized (this.refreshLock)
-    {
-      this.isRefreshing = true;
-    }
     try
     {
       LOGGER.info("Refreshing local version list...");
@@ -75,19 +102,60 @@ public class MinecraftVersionManager
       LOGGER.info("Refreshing remote version list...");
       this.remoteVersionList.refreshVersions();
     }
-    catch (IOException ex)
+    finally
     {
-      synchronized (this.refreshLock)
-      {
-        this.isRefreshing = false;
-      }
-      throw ex;
+      versionsChanged();
     }
+    rebuildVersionIndex();
     LOGGER.info("Refresh complete.");
-    synchronized (this.refreshLock)
+    fireVersionsRefreshed();
+  }
+  
+  public boolean refreshCachedVersions()
+    throws IOException
+  {
+    if (!(this.remoteVersionList instanceof RemoteVersionList)) {
+      return false;
+    }
+    LOGGER.info("Refreshing local version list...");
+    this.localVersionList.refreshVersions();
+    LOGGER.info("Loading cached remote version list...");
+    if (!((RemoteVersionList)this.remoteVersionList).refreshFromCache())
+    {
+      LOGGER.info("No cached remote version list");
+      return false;
+    }
+    versionsChanged();
+    rebuildVersionIndex();
+    LOGGER.info("Loaded cached remote version list.");
+    fireVersionsRefreshed();
+    return true;
+  }
+  
+  public void revalidateVersions()
+    throws IOException
+  {
+    if (!(this.remoteVersionList instanceof RemoteVersionList))
     {
-      this.isRefreshing = false;
+      refreshVersions();
+      return;
     }
+    LOGGER.info("Revalidating remote version list...");
+    String content = ((RemoteVersionList)this.remoteVersionList).fetchVersionList();
+    if (content == null)
+    {
+      LOGGER.info("Remote version list is unchanged.");
+      return;
+    }
+    ((RemoteVersionList)this.remoteVersionList).refreshVersions(content);
+    versionsChanged();
+    rebuildVersionIndex();
+    LOGGER.info("Remote version list changed, refresh complete.");
+    fireVersionsRefreshed();
+  }
+  
+  private void fireVersionsRefreshed()
+  {
     for (RefreshedVersionsListener listener : Lists.newArrayList(this.refreshedVersionsListeners)) {
       listener.onVersionsRefreshed(this);
     }
@@ -100,69 +168,118 @@ public class MinecraftVersionManager
   
   public List<VersionSyncInfo> getVersions(VersionFilter<? extends ReleaseType> filter)
   {
-    synchronized (this.refreshLock)
+    VersionIndex index = getVersionIndex();
+    if (filter == null) {
+      return new ArrayList(index.all);
+    }
+    List<VersionSyncInfo> result = new ArrayList();
+    for (ReleaseType type : filter.getTypes())
     {
-      if (this.isRefreshing) {
-        return new ArrayList();
+      List<VersionSyncInfo> local = (List)index.localByType.get(type);
+      if ((local != null) && (filter.getMaxCount() > 0)) {
+        result.addAll(local);
+      }
+      List<VersionSyncInfo> remote = (List)index.remoteByType.get(type);
+      if (remote != null) {
+        result.addAll(remote.subList(0, Math.max(0, Math.min(remote.size(), filter.getMaxCount()))));
       }
     }
-    List<VersionSyncInfo> result = new ArrayList();
-    Object lookup = new HashMap();
-    Map<MinecraftReleaseType, Integer> counts = Maps.newEnumMap(MinecraftReleaseType.class);
-    for (MinecraftReleaseType type : MinecraftReleaseType.values()) {
-      counts.put(type, Integer.valueOf(0));
+    if (result.isEmpty()) {
+      return new ArrayList(index.installedSorted);
+    }
+    Collections.sort(result, SYNC_INFO_ORDER);
+    return result;
+  }
+  
+  private VersionIndex getVersionIndex()
+  {
+    VersionIndex index = this.versionIndex;
+    if (index != null) {
+      return index;
     }
-    for (Version version : Lists.newArrayList(this.localVersionList.getVersions())) {
-      if ((version.getType() != null) && (version.getUpdatedTime() != null))
+    synchronized (this.indexLock)
+    {
+      return this.versionIndex != null ? this.versionIndex : rebuildVersionIndex();
+    }
+  }
+  
+  private VersionIndex rebuildVersionIndex()
+  {
+    synchronized (this.indexLock)
+    {
+      int generation = this.versionsGeneration.get();
+      if ((this.versionIndex != null) && (this.versionIndex.generation == generation)) {
+        return this.versionIndex;
+      }
+      long start = System.nanoTime();
+      VersionIndex index = buildVersionIndex(generation);
+      if (generation != this.versionsGeneration.get())
       {
-        MinecraftReleaseType type = (MinecraftReleaseType)version.getType();
-        if ((filter == null) || ((filter.getTypes().contains(type)) && (((Integer)counts.get(type)).intValue() < filter.getMaxCount())))
+        generation = this.versionsGeneration.get();
+        index = buildVersionIndex(generation);
+      }
+      this.versionIndex = index;
+      LOGGER.debug("Indexed " + index.all.size() + " version(s) in " + (System.nanoTime() - start) / 1000000L + " ms");
+      return index;
+    }
+  }
+  
+  private VersionIndex buildVersionIndex(int generation)
+  {
+    this.indexBuilder = Thread.currentThread();
+    try
+    {
+      VersionIndex index = new VersionIndex(generation);
+      for (Version version : Lists.newArrayList(this.localVersionList.getVersions())) {
+        if ((version.getType() != null) && (version.getUpdatedTime() != null))
         {
           VersionSyncInfo syncInfo = getVersionSyncInfo(version, this.remoteVersionList.getVersion(version.getId()));
-          ((Map)lookup).put(version.getId(), syncInfo);
-          result.add(syncInfo);
+          index.byId.put(version.getId(), syncInfo);
+          index.all.add(syncInfo);
+          index.installed.add(syncInfo);
+          index.add(index.localByType, (MinecraftReleaseType)version.getType(), syncInfo);
         }
       }
-    }
-    for (Version version : this.remoteVersionList.getVersions()) {
-      if ((version.getType() != null) && (version.getUpdatedTime() != null))
-      {
-        MinecraftReleaseType type = (MinecraftReleaseType)version.getType();
-        if ((!((Map)lookup).containsKey(version.getId())) && (
-          (filter == null) || ((filter.getTypes().contains(type)) && (((Integer)counts.get(type)).intValue() < filter.getMaxCount()))))
+      for (Version version : Lists.newArrayList(this.remoteVersionList.getVersions())) {
+        if ((version.getType() != null) && (version.getUpdatedTime() != null) && (!index.byId.containsKey(version.getId())))
         {
           VersionSyncInfo syncInfo = getVersionSyncInfo(this.localVersionList.getVersion(version.getId()), version);
-          ((Map)lookup).put(version.getId(), syncInfo);
-          result.add(syncInfo);
-          if (filter != null) {
-            counts.put(type, Integer.valueOf(((Integer)counts.get(type)).intValue() + 1));
-          }
+          index.byId.put(version.getId(), syncInfo);
+          index.all.add(syncInfo);
+          index.add(index.remoteByType, (MinecraftReleaseType)version.getType(), syncInfo);
         }
       }
-    }
-    if (result.isEmpty()) {
-      for (Version version : this.localVersionList.getVersions()) {
-        if ((version.getType() != null) && (version.getUpdatedTime() != null))
-        {
-          VersionSyncInfo syncInfo = getVersionSyncInfo(version, this.remoteVersionList.getVersion(version.getId()));
-          ((Map)lookup).put(version.getId(), syncInfo);
-          result.add(syncInfo);
-        }
+      Collections.sort(index.all, SYNC_INFO_ORDER);
+      index.installedSorted.addAll(index.installed);
+      Collections.sort(index.installedSorted, SYNC_INFO_ORDER);
+      for (List<VersionSyncInfo> local : index.localByType.values()) {
+        Collections.sort(local, SYNC_INFO_ORDER);
       }
+      return index;
     }
-    Collections.sort(result, new  Comparator<VersionSyncInfo>()
+    finally
     {
-      public int compare(VersionSyncInfo a, VersionSyncInfo b)
+      this.indexBuilder = null;
+    }
+  }
+  
+  private void versionsChanged()
+  {
+    this.versionsGeneration.incrementAndGet();
+    this.resolvedVersions.clear();
+    if (this.rebuildScheduled.compareAndSet(false, true)) {
+      this.executorService.submit(new Runnable()
       {
-        Version aVer = a.getLatestVersion();
-        Version bVer = b.getLatestVersion();
-        if ((aVer.getReleaseTime() != null) && (bVer.getReleaseTime() != null)) {
-          return bVer.getReleaseTime().compareTo(aVer.getReleaseTime());
+        public void run()
+        {
+          MinecraftVersionManager.this.rebuildScheduled.set(false);
+          VersionIndex previous = MinecraftVersionManager.this.versionIndex;
+          if (MinecraftVersionManager.this.rebuildVersionIndex() != previous) {
+            MinecraftVersionManager.this.fireVersionsRefreshed();
+          }
         }
-        return bVer.getUpdatedTime().compareTo(aVer.getUpdatedTime());
-      }
-    });
-    return result;
+      });
+    }
   }
   
   public VersionSyncInfo getVersionSyncInfo(Version version)
@@ -172,6 +289,14 @@ public class MinecraftVersionManager
   
   public VersionSyncInfo getVersionSyncInfo(String name)
   {
+    VersionIndex index = this.versionIndex;
+    if ((index != null) && (index.generation == this.versionsGeneration.get()) && (this.indexBuilder != Thread.currentThread()))
+    {
+      VersionSyncInfo syncInfo = (VersionSyncInfo)index.byId.get(name);
+      if ((syncInfo != null) && ((!syncInfo.isInstalled()) || (syncInfo.isUpToDate()))) {
+        return syncInfo;
+      }
+    }
     return getVersionSyncInfo(this.localVersionList.getVersion(name), this.remoteVersionList.getVersion(name));
   }
   
@@ -187,7 +312,7 @@ public class MinecraftVersionManager
     {
       try
       {
-        resolved = ((CompleteMinecraftVersion)localVersion).resolve(this);
+        resolved = resolve((CompleteMinecraftVersion)localVersion);
       }
       catch (IOException ex)
       {
@@ -199,17 +324,44 @@ public class MinecraftVersionManager
     return new VersionSyncInfo(resolved, remoteVersion, installed, upToDate);
   }
   
-  public List<VersionSyncInfo> getInstalledVersions()
+  private CompleteMinecraftVersion resolve(CompleteMinecraftVersion version)
+    throws IOException
   {
-    List<VersionSyncInfo> result = new ArrayList();
-    for (Version version : this.localVersionList.getVersions()) {
-      if ((version.getType() != null) && (version.getUpdatedTime() != null))
-      {
-        VersionSyncInfo syncInfo = getVersionSyncInfo(version, this.remoteVersionList.getVersion(version.getId()));
-        result.add(syncInfo);
+    if (version.getInheritsFrom() == null) {
+      return version;
+    }
+    String key = getResolutionKey(version);
+    CompleteMinecraftVersion resolved = (CompleteMinecraftVersion)this.resolvedVersions.get(key);
+    if (resolved == null)
+    {
+      resolved = version.resolve(this);
+      this.resolvedVersions.put(key, resolved);
+    }
+    return resolved;
+  }
+  
+  private String getResolutionKey(CompleteMinecraftVersion version)
+  {
+    StringBuilder key = new StringBuilder();
+    Set<String> seen = new HashSet();
+    Version current = version;
+    while ((current != null) && (seen.add(current.getId())))
+    {
+      key.append(current.getId()).append('@').append(current.getUpdatedTime() == null ? 0L : current.getUpdatedTime().getTime()).append('/');
+      if ((!(current instanceof CompleteMinecraftVersion)) || (((CompleteMinecraftVersion)current).getInheritsFrom() == null)) {
+        break;
       }
+      String parentId = ((CompleteMinecraftVersion)current).getInheritsFrom();
+      Version local = this.localVersionList.getVersion(parentId);
+      Version remote = this.remoteVersionList.getVersion(parentId);
+      current = (local == null) || ((remote != null) && (remote.getUpdatedTime().after(local.getUpdatedTime()))) ? remote : local;
     }
-    return result;
+    return key.toString();
+  }
+  
+  public List<VersionSyncInfo> getInstalledVersions()
+  {
+    return new ArrayList(rebuildVersionIndex().installed);
   }
   
   public VersionList getRemoteVersionList()
@@ -263,7 +415,7 @@ public class MinecraftVersionManager
     File baseDirectory = ((LocalVersionList)this.localVersionList).getBaseDirectory();
     Proxy proxy = ((RemoteVersionList)this.remoteVersionList).getProxy();
     
-    job.addDownloadables(version.getRequiredDownloadables(OperatingSystem.getCurrentPlatform(), proxy, baseDirectory, false));
+    job.addDownloadables(RevalidationCache.getInstance().filter(version.getRequiredDownloadables(OperatingSystem.getCurrentPlatform(), proxy, baseDirectory, false)));
     String jarFile = "versions/" + version.getJar() + "/" + version.getJar() + ".jar";
     job.addDownloadables(new Downloadable[] { new EtagDownloadable(proxy, this.remoteVersionList.getUrl(jarFile), new File(baseDirectory, jarFile), false) });
     
@@ -283,7 +435,6 @@ public class MinecraftVersionManager
   private Set<Downloadable> getResourceFiles(Proxy proxy, File baseDirectory, CompleteMinecraftVersion version)
   {
     Set<Downloadable> result = new HashSet();
-    InputStream inputStream = null;
     File assets = new File(baseDirectory, "assets");
     File objectsFolder = new File(assets, "objects");
     File indexesFolder = new File(assets, "indexes");
@@ -296,18 +447,42 @@ public class MinecraftVersionManager
     try
     {
       URL indexUrl = this.remoteVersionList.getUrl("indexes/" + indexName + ".json");
-      inputStream = indexUrl.openConnection(proxy).getInputStream();
-      String json = IOUtils.toString(inputStream);
-      FileUtils.writeStringToFile(indexFile, json);
-      AssetIndex index = (AssetIndex)this.gson.fromJson(json, AssetIndex.class);
+      String hash;
+      try
+      {
+        hash = RevalidationCache.getInstance().fetch(indexUrl, proxy, indexFile);
+      }
+      catch (IOException e)
+      {
+        hash = indexFile.isFile() ? Downloadable.getDigest(indexFile, "SHA-1", 40) : null;
+        if (hash == null) {
+          throw e;
+        }
+        LOGGER.warn("Couldn't download asset index " + indexName + ", using local copy", e);
+      }
+      AssetIndex index = AssetIndexCache.getInstance().getIndex(indexFile, hash);
+      Map<String, Long> objects = listAssetObjects(objectsFolder, index.getUniqueObjects().keySet());
+      AssetPack pack = AssetPack.forDirectory(objectsFolder);
       for (Map.Entry<AssetIndex.AssetObject, String> entry : index.getUniqueObjects().entrySet())
       {
         AssetIndex.AssetObject object = (AssetIndex.AssetObject)entry.getKey();
-        String filename = object.getHash().substring(0, 2) + "/" + object.getHash();
-        File file = new File(objectsFolder, filename);
-        if ((!file.isFile()) || (FileUtils.sizeOf(file) != object.getSize()))
+        boolean present;
+        if (objects != null)
+        {
+          Long size = (Long)objects.get(object.getHash());
+          present = (size != null) && (size.longValue() == object.getSize());
+        }
+        else
         {
-          Downloadable downloadable = new AssetDownloadable(proxy, (String)entry.getValue(), object, "http://resources.download.minecraft.net/", objectsFolder);
+          File file = new File(objectsFolder, object.getHash().substring(0, 2) + "/" + object.getHash());
+          present = (file.isFile()) && (FileUtils.sizeOf(file) == object.getSize());
+        }
+        if ((!present) && (pack != null)) {
+          present = pack.getSize(object.getHash()) == object.getSize();
+        }
+        if (!present)
+        {
+          Downloadable downloadable = new AssetDownloadable(proxy, (String)entry.getValue(), object, LauncherConstants.RESOURCE_MIRRORS.getPrimary(), objectsFolder);
           downloadable.setExpectedSize(object.getSize());
           result.add(downloadable);
         }
@@ -320,13 +495,83 @@ public class MinecraftVersionManager
     {
       LOGGER.error("Couldn't download resources", ex);
     }
-    finally
+    return result;
+  }
+  
+  private Map<String, Long> listAssetObjects(File objectsFolder, Collection<AssetIndex.AssetObject> wanted)
+  {
+    final Map<String, Long> result = new ConcurrentHashMap();
+    File[] shards = objectsFolder.listFiles((FileFilter)DirectoryFileFilter.DIRECTORY);
+    if ((shards == null) || (shards.length == 0)) {
+      return result;
+    }
+    final Map<String, List<String>> wantedByShard = new HashMap();
+    for (AssetIndex.AssetObject object : wanted)
+    {
+      String hash = object.getHash();
+      List<String> hashes = (List)wantedByShard.get(hash.substring(0, 2));
+      if (hashes == null)
+      {
+        hashes = new ArrayList();
+        wantedByShard.put(hash.substring(0, 2), hashes);
+      }
+      hashes.add(hash);
+    }
+    List<Callable<Object>> tasks = new ArrayList();
+    for (final File shard : shards)
+    {
+      final List<String> hashes = (List)wantedByShard.get(shard.getName().toLowerCase());
+      if (hashes != null) {
+        tasks.add(Executors.callable(new Runnable()
+        {
+          public void run()
+          {
+            String[] names = shard.list();
+            if (names == null) {
+              return;
+            }
+            Map<String, String> present = new HashMap();
+            for (String name : names) {
+              present.put(name.toLowerCase(), name);
+            }
+            for (String hash : hashes)
+            {
+              String name = (String)present.get(hash);
+              if (name != null) {
+                result.put(hash, Long.valueOf(new File(shard, name).length()));
+              }
+            }
+          }
+        }));
+      }
+    }
+    if (tasks.isEmpty()) {
+      return result;
+    }
+    try
+    {
+      getAssetScanExecutor().invokeAll(tasks);
+    }
+    catch (InterruptedException e)
     {
-      IOUtils.closeQuietly(inputStream);
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Interrupted while listing asset objects, checking them one by one");
+      return null;
     }
     return result;
   }
   
+  private static synchronized ExecutorService getAssetScanExecutor()
+  {
+    if (assetScanExecutor == null)
+    {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(ASSET_SCAN_THREADS, ASSET_SCAN_THREADS, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Asset scan #%d").build());
+      executor.allowCoreThreadTimeOut(true);
+      assetScanExecutor = executor;
+    }
+    return assetScanExecutor;
+  }
+  
   public ThreadPoolExecutor getExecutorService()
   {
     return this.executorService;
@@ -349,6 +594,7 @@ public class MinecraftVersionManager
     getLocalVersionList().removeVersion(syncInfo.getLocalVersion());
     getLocalVersionList().addVersion(remoteVersion);
     ((LocalVersionList)getLocalVersionList()).saveVersion(((CompleteMinecraftVersion)remoteVersion).getSavableVersion());
+    versionsChanged();
     return getVersionSyncInfo(remoteVersion);
   }
   
@@ -366,6 +612,7 @@ public class MinecraftVersionManager
     if ((localVersionList instanceof LocalVersionList)) {
       ((LocalVersionList)localVersionList).saveVersion(version);
     }
+    versionsChanged();
     LOGGER.info("Installed " + version);
   }
   
@@ -376,9 +623,37 @@ public class MinecraftVersionManager
     if ((localVersionList instanceof LocalVersionList))
     {
       localVersionList.uninstallVersion(version);
+      versionsChanged();
       LOGGER.info("Uninstalled " + version);
     }
   }
+  private static class VersionIndex
+  {
+    private final int generation;
+    private final List<VersionSyncInfo> all = new ArrayList();
+    private final List<VersionSyncInfo> installed = new ArrayList();
+    private final List<VersionSyncInfo> installedSorted = new ArrayList();
+    private final Map<String, VersionSyncInfo> byId = new HashMap();
+    private final Map<MinecraftReleaseType, List<VersionSyncInfo>> localByType = Maps.newEnumMap(MinecraftReleaseType.class);
+    private final Map<MinecraftReleaseType, List<VersionSyncInfo>> remoteByType = Maps.newEnumMap(MinecraftReleaseType.class);
+    
+    public VersionIndex(int generation)
+    {
+      this.generation = generation;
+    }
+    
+    private void add(Map<MinecraftReleaseType, List<VersionSyncInfo>> byType, MinecraftReleaseType type, VersionSyncInfo syncInfo)
+    {
+      List<VersionSyncInfo> list = (List)byType.get(type);
+      if (list == null)
+      {
+        list = new ArrayList();
+        byType.put(type, list);
+      }
+      list.add(syncInfo);
+    }
+  }
+  
   static {
       LOGGER = LogManager.getLogger();
   }
@@ -2,21 +2,107 @@ package net.minecraft.launcher.updater;
 
 import com.mojang.launcher.Http;
 import com.mojang.launcher.OperatingSystem;
+import com.mojang.launcher.updater.download.MirrorList;
+import com.mojang.launcher.updater.download.RevalidationCache;
+import com.google.gson.JsonParseException;
+import com.mojang.launcher.versions.CompleteVersion;
+import com.mojang.launcher.versions.Version;
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.Proxy;
 import java.net.URL;
+import java.util.Collections;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 public class RemoteVersionList
   extends VersionList
 {
-  private final String baseUrl;
+  private static final Logger LOGGER;
+  private static final String VERSION_LIST = "versions/versions.json";
+  private final MirrorList mirrors;
   private final Proxy proxy;
+  private final File cacheDirectory;
+  private String versionListHash;
   
   public RemoteVersionList(String baseUrl, Proxy proxy)
   {
-    this.baseUrl = baseUrl;
+    this(new MirrorList("versions", Collections.singletonList(baseUrl)), proxy, null);
+  }
+  
+  public RemoteVersionList(MirrorList mirrors, Proxy proxy)
+  {
+    this(mirrors, proxy, null);
+  }
+  
+  public RemoteVersionList(MirrorList mirrors, Proxy proxy, File cacheDirectory)
+  {
+    this.mirrors = mirrors;
     this.proxy = proxy;
+    this.cacheDirectory = cacheDirectory;
+  }
+  
+  public boolean refreshFromCache()
+    throws IOException
+  {
+    String content = readCache(VERSION_LIST);
+    if (content == null) {
+      return false;
+    }
+    try
+    {
+      refreshVersions(content);
+    }
+    catch (JsonParseException e)
+    {
+      LOGGER.warn("Cached version list is corrupt, ignoring it", e);
+      return false;
+    }
+    return true;
+  }
+  
+  public String fetchVersionList()
+    throws IOException
+  {
+    String content = download(VERSION_LIST);
+    if (DigestUtils.sha1Hex(content).equals(this.versionListHash)) {
+      return null;
+    }
+    return content;
+  }
+  
+  protected void refreshVersions(String content)
+    throws IOException
+  {
+    super.refreshVersions(content);
+    this.versionListHash = DigestUtils.sha1Hex(content);
+  }
+  
+  public CompleteMinecraftVersion getCompleteVersion(Version version)
+    throws IOException
+  {
+    if ((version != null) && (!(version instanceof CompleteVersion)) && (this.cacheDirectory != null))
+    {
+      String content = readCache(getVersionPath(version));
+      if (content != null) {
+        try
+        {
+          CompleteMinecraftVersion complete = (CompleteMinecraftVersion)this.gson.fromJson(content, CompleteMinecraftVersion.class);
+          if ((complete != null) && (version.getUpdatedTime() != null) && (version.getUpdatedTime().equals(complete.getUpdatedTime()))) {
+            return replacePartialWithFull(version, complete);
+          }
+        }
+        catch (JsonParseException e)
+        {
+          LOGGER.warn("Cached version " + version.getId() + " is corrupt, downloading it again", e);
+        }
+      }
+    }
+    return super.getCompleteVersion(version);
   }
   
   public boolean hasAllFiles(CompleteMinecraftVersion version, OperatingSystem os)
@@ -27,17 +113,74 @@ public class RemoteVersionList
   public String getContent(String path)
     throws IOException
   {
-    return Http.performGet(getUrl(path), this.proxy);
+    return download(path);
+  }
+  
+  private String download(String path)
+    throws IOException
+  {
+    String baseUrl = this.mirrors.getPrimary();
+    for (;;)
+    {
+      try
+      {
+        URL url = new URL(baseUrl + path);
+        if (this.cacheDirectory == null) {
+          return Http.performGet(url, this.proxy);
+        }
+        File file = new File(this.cacheDirectory, path);
+        RevalidationCache.getInstance().fetch(url, this.proxy, file);
+        return FileUtils.readFileToString(file, Charsets.UTF_8);
+      }
+      catch (IOException e)
+      {
+        String next = this.mirrors.getNext(baseUrl);
+        if ((next == null) || (next.equals(this.mirrors.getPrimary()))) {
+          throw e;
+        }
+        LOGGER.warn("Couldn't get " + path + " from " + baseUrl + ", trying " + next, e);
+        baseUrl = next;
+      }
+    }
+  }
+  
+  private static String getVersionPath(Version version)
+  {
+    return "versions/" + version.getId() + "/" + version.getId() + ".json";
+  }
+  
+  private String readCache(String path)
+  {
+    if (this.cacheDirectory == null) {
+      return null;
+    }
+    File file = new File(this.cacheDirectory, path);
+    if (!file.isFile()) {
+      return null;
+    }
+    try
+    {
+      return FileUtils.readFileToString(file, Charsets.UTF_8);
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Couldn't read cached " + path, e);
+    }
+    return null;
   }
   
   public URL getUrl(String file)
     throws MalformedURLException
   {
-    return new URL(this.baseUrl + file);
+    return new URL(this.mirrors.getPrimary() + file);
   }
   
   public Proxy getProxy()
   {
     return this.proxy;
   }
+  
+  static {
+      LOGGER = LogManager.getLogger();
+  }
 }
\ No newline at end of file
@@ -26,9 +26,7 @@ import net.minecraft.launcher.game.MinecraftReleaseTypeFactory;
 public abstract class VersionList
 {
   protected final Gson gson;
-  private final Map<String, Version> versionsByName = new HashMap();
-  private final List<Version> versions = new ArrayList();
-  private final Map<MinecraftReleaseType, Version> latestVersions = Maps.newEnumMap(MinecraftReleaseType.class);
+  private volatile Contents contents = new Contents();
   
   public VersionList()
   {
@@ -44,7 +42,7 @@ public abstract class VersionList
   
   public Collection<Version> getVersions()
   {
-    return this.versions;
+    return Collections.unmodifiableList(this.contents.versions);
   }
   
   public Version getLatestVersion(MinecraftReleaseType type)
@@ -52,7 +50,7 @@ public abstract class VersionList
     if (type == null) {
       throw new IllegalArgumentException("Type cannot be null");
     }
-    return (Version)this.latestVersions.get(type);
+    return (Version)this.contents.latestVersions.get(type);
   }
   
   public Version getVersion(String name)
@@ -60,7 +58,7 @@ public abstract class VersionList
     if ((name == null) || (name.length() == 0)) {
       throw new IllegalArgumentException("Name cannot be null or empty");
     }
-    return (Version)this.versionsByName.get(name);
+    return (Version)this.contents.versionsByName.get(name);
   }
   
   public CompleteMinecraftVersion getCompleteVersion(String name)
@@ -86,40 +84,66 @@ public abstract class VersionList
       throw new IllegalArgumentException("Version cannot be null");
     }
     CompleteMinecraftVersion complete = (CompleteMinecraftVersion)this.gson.fromJson(getContent("versions/" + version.getId() + "/" + version.getId() + ".json"), CompleteMinecraftVersion.class);
+    return replacePartialWithFull(version, complete);
+  }
+  
+  protected synchronized CompleteMinecraftVersion replacePartialWithFull(Version version, CompleteMinecraftVersion complete)
+  {
     MinecraftReleaseType type = (MinecraftReleaseType)version.getType();
+    Contents contents = new Contents(this.contents);
     
-    Collections.replaceAll(this.versions, version, complete);
-    this.versionsByName.put(version.getId(), complete);
-    if (this.latestVersions.get(type) == version) {
-      this.latestVersions.put(type, complete);
+    Collections.replaceAll(contents.versions, version, complete);
+    contents.versionsByName.put(version.getId(), complete);
+    if (contents.latestVersions.get(type) == version) {
+      contents.latestVersions.put(type, complete);
     }
+    this.contents = contents;
     return complete;
   }
   
-  protected void clearCache()
+  protected synchronized void clearCache()
   {
-    this.versionsByName.clear();
-    this.versions.clear();
-    this.latestVersions.clear();
+    this.contents = new Contents();
+  }
+  
+  protected synchronized void replaceVersions(Collection<? extends Version> versions, Map<MinecraftReleaseType, ? extends Version> latestVersions)
+  {
+    Contents contents = new Contents();
+    for (Version version : versions)
+    {
+      contents.versions.add(version);
+      contents.versionsByName.put(version.getId(), version);
+    }
+    contents.latestVersions.putAll(latestVersions);
+    this.contents = contents;
   }
   
   public void refreshVersions()
     throws IOException
   {
-    clearCache();
-    
-    RawVersionList versionList = (RawVersionList)this.gson.fromJson(getContent("versions/versions.json"), RawVersionList.class);
-    for (Version version : versionList.getVersions())
-    {
-      this.versions.add(version);
-      this.versionsByName.put(version.getId(), version);
+    refreshVersions(getContent("versions/versions.json"));
+  }
+  
+  protected void refreshVersions(String content)
+    throws IOException
+  {
+    RawVersionList versionList = (RawVersionList)this.gson.fromJson(content, RawVersionList.class);
+    Map<String, Version> byName = new HashMap();
+    for (Version version : versionList.getVersions()) {
+      byName.put(version.getId(), version);
     }
-    for (MinecraftReleaseType type : MinecraftReleaseType.values()) {
-      this.latestVersions.put(type, this.versionsByName.get(versionList.getLatestVersions().get(type)));
+    Map<MinecraftReleaseType, Version> latest = Maps.newEnumMap(MinecraftReleaseType.class);
+    for (MinecraftReleaseType type : MinecraftReleaseType.values())
+    {
+      Version version = (Version)byName.get(versionList.getLatestVersions().get(type));
+      if (version != null) {
+        latest.put(type, version);
+      }
     }
+    replaceVersions(versionList.getVersions(), latest);
   }
   
-  public CompleteVersion addVersion(CompleteVersion version)
+  public synchronized CompleteVersion addVersion(CompleteVersion version)
   {
     if (version.getId() == null) {
       throw new IllegalArgumentException("Cannot add blank version");
@@ -127,8 +151,10 @@ public abstract class VersionList
     if (getVersion(version.getId()) != null) {
       throw new IllegalArgumentException("Version '" + version.getId() + "' is already tracked");
     }
-    this.versions.add(version);
-    this.versionsByName.put(version.getId(), version);
+    Contents contents = new Contents(this.contents);
+    contents.versions.add(version);
+    contents.versionsByName.put(version.getId(), version);
+    this.contents = contents;
     
     return version;
   }
@@ -145,26 +171,30 @@ public abstract class VersionList
     removeVersion(version);
   }
   
-  public void removeVersion(Version version)
+  public synchronized void removeVersion(Version version)
   {
     if (version == null) {
       throw new IllegalArgumentException("Cannot remove null version");
     }
-    this.versions.remove(version);
-    this.versionsByName.remove(version.getId());
+    Contents contents = new Contents(this.contents);
+    contents.versions.remove(version);
+    contents.versionsByName.remove(version.getId());
     for (MinecraftReleaseType type : MinecraftReleaseType.values()) {
-      if (getLatestVersion(type) == version) {
-        this.latestVersions.remove(type);
+      if (contents.latestVersions.get(type) == version) {
+        contents.latestVersions.remove(type);
       }
     }
+    this.contents = contents;
   }
   
-  public void setLatestVersion(Version version)
+  public synchronized void setLatestVersion(Version version)
   {
     if (version == null) {
       throw new IllegalArgumentException("Cannot set latest version to null");
     }
-    this.latestVersions.put((MinecraftReleaseType)version.getType(), version);
+    Contents contents = new Contents(this.contents);
+    contents.latestVersions.put((MinecraftReleaseType)version.getType(), version);
+    this.contents = contents;
   }
   
   public void setLatestVersion(String name)
@@ -207,6 +237,9 @@ public abstract class VersionList
     if (version == null) {
       throw new IllegalArgumentException("Cannot serialize null!");
     }
+    if ((version instanceof CompleteMinecraftVersion)) {
+      ((CompleteMinecraftVersion)version).loadDetails();
+    }
     return this.gson.toJson(version);
   }
   
@@ -223,6 +256,28 @@ public abstract class VersionList
     removeVersion(version);
   }
   
+  private static class Contents
+  {
+    private final List<Version> versions;
+    private final Map<String, Version> versionsByName;
+    private final Map<MinecraftReleaseType, Version> latestVersions;
+    
+    public Contents()
+    {
+      this.versions = new ArrayList();
+      this.versionsByName = new HashMap();
+      this.latestVersions = Maps.newEnumMap(MinecraftReleaseType.class);
+    }
+    
+    public Contents(Contents contents)
+    {
+      this.versions = new ArrayList(contents.versions);
+      this.versionsByName = new HashMap(contents.versionsByName);
+      this.latestVersions = Maps.newEnumMap(MinecraftReleaseType.class);
+      this.latestVersions.putAll(contents.latestVersions);
+    }
+  }
+  
   private static class RawVersionList
   {
     private List<PartialVersion> versions = new ArrayList();
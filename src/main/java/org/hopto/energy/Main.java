@@ -1,5 +1,6 @@
 package org.hopto.energy;
 
+import com.mojang.launcher.Http;
 import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
@@ -27,6 +28,7 @@ public class Main {
 
 
         System.setProperty("java.net.preferIPv4Stack", "true");
+        Http.configureConnectionPool();
 
         OptionParser optionParser = new OptionParser();
         optionParser.allowsUnrecognizedOptions();